@@ -0,0 +1,278 @@
+package huskymaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds alternatives to the shortest path between two nodes with via-node candidates on an
+ * UpwardGraph. Once a point-to-point query has found the shortest distance, forward and backward
+ * searches from the endpoints settle every node within maxStretch of it; every node settled by
+ * both is a candidate, and the path through it is the shortest path to it followed by the
+ * shortest path from it. Candidates are tried in order of length and accepted if their path is
+ * admissible:
+ *
+ * - Bounded stretch: the whole path, and its detour from the routes already accepted, are at
+ *   most maxStretch longer than the shortest paths between their ends.
+ * - Limited sharing: at most maxSharing of the shortest distance is shared with accepted routes.
+ * - Local optimality: every subpath around the via node no longer than localOptimality times the
+ *   shortest distance is itself a shortest path, so the route makes no pointless detours.
+ *
+ * Evaluating a candidate costs one unpacking and two point-to-point queries, each bounded by the
+ * length of the subpath it checks. Most candidates are rejected before that by measuring what
+ * they share with accepted routes in hierarchy edges, which underestimates the sharing of the
+ * unpacked paths and costs only a walk up the two search trees. A few alternatives then cost a
+ * small multiple of a single query.
+ *
+ * An engine holds its workspaces between calls, so each thread should keep its own.
+ */
+public class AlternativeRoutes {
+    private final UpwardGraph graph;
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+    private final HierarchyQuery query;
+    private final PathUnpacker unpacker;
+    /** The forward search tree edges of the path being unpacked, from the via node back. */
+    private int[] upEdges = new int[16];
+    /** The hierarchy edges used upward or downward by accepted routes are marked with stamp. */
+    private final int[] upShared;
+    private final int[] downShared;
+    private int stamp;
+
+    public AlternativeRoutes(UpwardGraph graph) {
+        this.graph = graph;
+        this.forward = new SearchWorkspace(graph.size());
+        this.backward = new SearchWorkspace(graph.size());
+        this.query = new HierarchyQuery(graph);
+        this.unpacker = new PathUnpacker(graph);
+        this.upShared = new int[graph.numEdges()];
+        this.downShared = new int[graph.numEdges()];
+    }
+
+    /** Returns the graph this engine searches. */
+    public UpwardGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Computes the shortest path and up to the given number of alternatives.
+     * @param source The rank of the start node.
+     * @param target The rank of the end node.
+     * @param maxAlternatives The most alternatives to return.
+     * @param maxStretch How much longer than the shortest paths between the same nodes a route
+     *                   and its detour may be, as a fraction.
+     * @param maxSharing How much of the shortest distance a route may share with the routes
+     *                   before it, as a fraction.
+     * @param localOptimality The fraction of the shortest distance around the via node that must
+     *                        be a shortest path.
+     * @param maxCandidates The most via nodes to evaluate.
+     * @return The shortest route followed by the alternatives in order of length, or an empty
+     * list if there is no path.
+     */
+    public List<Route> find(int source, int target, int maxAlternatives, double maxStretch,
+                            double maxSharing, double localOptimality, int maxCandidates) {
+        List<Route> routes = new ArrayList<>();
+        double shortest = query.run(source, target);
+        if (shortest == Double.POSITIVE_INFINITY) {
+            return routes;
+        }
+        // No via node farther away than the longest admissible route can lie on one
+        double limit = (1 + maxStretch) * shortest + 1e-9;
+        HierarchyQuery.search(graph, forward, source, true, limit);
+        HierarchyQuery.search(graph, backward, target, false, limit);
+
+        // Collect the via nodes whose paths are short enough, shortest first
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = UpwardGraph.NONE;
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < forward.numSettled(); i += 1) {
+            int v = forward.settled(i);
+            if (forward.distTo(v) + backward.distTo(v) <= limit) {
+                candidates.add(v);
+                double distance = forward.distTo(v) + backward.distTo(v);
+                if (distance < best) {
+                    best = distance;
+                    meeting = v;
+                }
+            }
+        }
+        if (meeting == UpwardGraph.NONE) {
+            return routes;
+        }
+        candidates.sort(Comparator.comparingDouble(v -> forward.distTo(v) + backward.distTo(v)));
+
+        stamp += 1;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(upShared, 0);
+            Arrays.fill(downShared, 0);
+            stamp = 1;
+        }
+        Route route = unpack(meeting);
+        routes.add(route);
+        Set<Long> visited = new HashSet<>(route.path);
+        Map<Long, Set<Long>> shared = new HashMap<>();
+        share(shared, route);
+        markShared(meeting);
+        int evaluated = 0;
+        for (int v : candidates) {
+            if (routes.size() > maxAlternatives || evaluated == maxCandidates) {
+                break;
+            }
+            // The path through a node on an accepted route is that route, or close to it
+            if (visited.contains(graph.id(v)) || sharedInHierarchy(v) > maxSharing * shortest) {
+                continue;
+            }
+            evaluated += 1;
+            route = unpack(v);
+            if (admissible(route, graph.id(v), shared, shortest, maxStretch, maxSharing, localOptimality)) {
+                routes.add(route);
+                visited.addAll(route.path);
+                share(shared, route);
+                markShared(v);
+            }
+        }
+        return routes;
+    }
+
+    /** Returns the length of the hierarchy edges to and from the via node used by accepted routes. */
+    private double sharedInHierarchy(int via) {
+        double length = 0;
+        for (int v = via; forward.edgeTo(v) != -1; v = graph.tail(forward.edgeTo(v))) {
+            if (upShared[forward.edgeTo(v)] == stamp) {
+                length += graph.upWeight(forward.edgeTo(v));
+            }
+        }
+        for (int v = via; backward.edgeTo(v) != -1; v = graph.tail(backward.edgeTo(v))) {
+            if (downShared[backward.edgeTo(v)] == stamp) {
+                length += graph.downWeight(backward.edgeTo(v));
+            }
+        }
+        return length;
+    }
+
+    /** Marks the hierarchy edges to and from the via node as used by an accepted route. */
+    private void markShared(int via) {
+        for (int v = via; forward.edgeTo(v) != -1; v = graph.tail(forward.edgeTo(v))) {
+            upShared[forward.edgeTo(v)] = stamp;
+        }
+        for (int v = via; backward.edgeTo(v) != -1; v = graph.tail(backward.edgeTo(v))) {
+            downShared[backward.edgeTo(v)] = stamp;
+        }
+    }
+
+    /** Returns whether the route through the via node meets every admissibility condition. */
+    private boolean admissible(Route route, long via, Map<Long, Set<Long>> shared, double shortest,
+                               double maxStretch, double maxSharing, double localOptimality) {
+        List<Long> path = route.path;
+        double[] lengths = route.lengths;
+        if (new HashSet<>(path).size() != path.size()) {
+            return false;
+        }
+        // Find how much is shared, and where the detour leaves and rejoins the accepted routes
+        double sharedLength = 0;
+        int leave = -1;
+        int rejoin = -1;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            if (shared.getOrDefault(path.get(i), Set.of()).contains(path.get(i + 1))) {
+                sharedLength += lengths[i + 1] - lengths[i];
+            } else {
+                if (leave == -1) {
+                    leave = i;
+                }
+                rejoin = i + 1;
+            }
+        }
+        if (leave == -1 || sharedLength > maxSharing * shortest) {
+            return false;
+        }
+        double detour = lengths[rejoin] - lengths[leave];
+        if (detour > (1 + maxStretch) * distance(path.get(leave), path.get(rejoin), detour) + 1e-9) {
+            return false;
+        }
+        // T-test: the stretch of the path within the given distance of the via node is optimal
+        int viaIndex = path.indexOf(via);
+        double window = localOptimality * shortest;
+        int before = viaIndex;
+        while (before > 0 && lengths[viaIndex] - lengths[before] < window) {
+            before -= 1;
+        }
+        int after = viaIndex;
+        while (after < path.size() - 1 && lengths[after] - lengths[viaIndex] < window) {
+            after += 1;
+        }
+        double subpath = lengths[after] - lengths[before];
+        return subpath <= distance(path.get(before), path.get(after), subpath) + 1e-9;
+    }
+
+    /**
+     * Returns the shortest distance between two nodes of the hierarchy joined by a path of the
+     * given length. The path bounds the distance, so the query explores no farther.
+     */
+    private double distance(long from, long to, double length) {
+        return query.run(graph.rank(from), graph.rank(to), length + 1e-9);
+    }
+
+    /** Returns the path through the via node, unpacked into the original edges. */
+    private Route unpack(int via) {
+        // The forward half is found from the via node back, so its edges are unpacked in reverse
+        int count = 0;
+        int v = via;
+        for (; forward.edgeTo(v) != -1; v = graph.tail(forward.edgeTo(v))) {
+            if (count == upEdges.length) {
+                upEdges = Arrays.copyOf(upEdges, 2 * count);
+            }
+            upEdges[count] = forward.edgeTo(v);
+            count += 1;
+        }
+        unpacker.start(v);
+        for (int i = count - 1; i >= 0; i -= 1) {
+            unpacker.append(upEdges[i], true);
+        }
+        for (v = via; backward.edgeTo(v) != -1; v = graph.tail(backward.edgeTo(v))) {
+            unpacker.append(backward.edgeTo(v), false);
+        }
+
+        double[] lengths = new double[unpacker.size()];
+        for (int i = 1; i < unpacker.size(); i += 1) {
+            int from = unpacker.get(i - 1);
+            int to = unpacker.get(i);
+            lengths[i] = lengths[i - 1] + (from < to
+                    ? graph.upWeight(graph.edge(from, to))
+                    : graph.downWeight(graph.edge(to, from)));
+        }
+        return new Route(unpacker.ids(), lengths);
+    }
+
+    /** Records the edges of the route as shared by later routes. */
+    private static void share(Map<Long, Set<Long>> shared, Route route) {
+        for (int i = 0; i + 1 < route.path.size(); i += 1) {
+            shared.computeIfAbsent(route.path.get(i), k -> new HashSet<>()).add(route.path.get(i + 1));
+        }
+    }
+
+    /** A route found by the engine. */
+    public static class Route {
+        private final List<Long> path;
+        private final double[] lengths;
+
+        Route(List<Long> path, double[] lengths) {
+            this.path = path;
+            this.lengths = lengths;
+        }
+
+        /** Returns the ids of the nodes along the route. */
+        public List<Long> path() {
+            return path;
+        }
+
+        /** Returns the length of the route. */
+        public double distance() {
+            return lengths[lengths.length - 1];
+        }
+    }
+}
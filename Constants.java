@@ -1,8 +1,6 @@
 package huskymaps;
 
 import java.awt.Color;
-import java.util.LinkedList;
-import java.util.List;
 
 /** A class holding all the constant values used throughout the project */
 public class Constants {
@@ -31,6 +29,15 @@ public class Constants {
     public static final int[] NUM_X_TILES_AT_DEPTH = {2, 4, 8, 16, 32, 64, 128, 256};
     public static final int[] NUM_Y_TILES_AT_DEPTH = {1, 2, 4,  8, 16, 32,  64, 128};
 
+    /** The deepest zoom level for which tiles exist. */
+    public static final int MAX_DEPTH = NUM_X_TILES_AT_DEPTH.length - 1;
+
+    /**
+     * The most tiles a single raster request may cover. Larger viewports are rastered at a
+     * coarser depth instead.
+     */
+    public static final int MAX_RASTER_TILES = 256;
+
     /** The longitude spanned by a tile at each depth from 0 to MAX_DEPTH. */
     public static final double[] LON_PER_TILE = {
             ROOT_LON_DIFF / NUM_X_TILES_AT_DEPTH[0],
@@ -79,29 +86,158 @@ public class Constants {
 
     /** The tile images are in the IMG_ROOT folder. */
     public static final String IMG_ROOT = BASE_DIR_PATH + "tiles/";
+    /**
+     * The packed tile archive built by TileArchive, read from the classpath under
+     * HEROKU_DEPLOYMENT. Tiles are read from IMG_ROOT if absent.
+     */
+    public static final String TILE_ARCHIVE_PATH = BASE_DIR_PATH + "tiles.pack";
     public static final int MIN_ZOOM_LEVEL = 10;
     public static final int[] MIN_X_TILE_AT_DEPTH = {163, 326, 652, 1304, 2608, 5216, 10432, 20864};
     public static final int[] MIN_Y_TILE_AT_DEPTH = {357, 714, 1428, 2856, 5712, 11424, 22848, 45696};
 
+    /** Number of decoded tiles kept in memory. Each tile takes about 200 KB. */
+    public static final int TILE_CACHE_SIZE = 256;
+
+    /**
+     * The most tiles prefetched around one viewport, in order of priority, and how long
+     * prefetching backs off while foreground raster requests run.
+     */
+    public static final int PREFETCH_MAX_TILES = 64;
+    public static final long PREFETCH_BACKOFF_MS = 10;
+
+    /**
+     * Format and compression quality of rendered raster images. For "png", the quality selects
+     * the deflate level where 1.0 is stored uncompressed and lower values compress harder.
+     * For "jpg", the quality is the lossy quality factor; browsers sniff the image type, so the
+     * front end does not need to change its data URL.
+     */
+    public static final String RASTER_IMAGE_FORMAT = "png";
+    public static final float RASTER_COMPRESSION_QUALITY = 0.9f;
+
     /** Route stroke information. */
     public static final Color ROUTE_STROKE_COLOR = new Color(108, 181, 230);
     public static final float ROUTE_STROKE_WIDTH_PX = 5.0f;
 
-    /** Graph singleton instance. */
-    public static ContractedStreetMapGraph SEMANTIC_STREET_GRAPH;
+    /** Maximum distance in pixels that a simplified route may deviate from the full route. */
+    public static final double ROUTE_SIMPLIFICATION_TOLERANCE_PX = 1.0;
+
+    /** The most routes a single batch route request may ask for. */
+    public static final int MAX_BATCH_ROUTES = 1000;
 
     /**
-     * This is used to maintain a single List of route so that the same instance(object) is accessed
-     * from everywhere in the code. Enum is a cleaner way to achieve such a singleton pattern.
+     * The cost that routes minimize. Under TRAVEL_TIME, route lengths such as batch route
+     * distances and isochrone limits are in minutes rather than miles.
      */
-    public static List<Long> ROUTE_LIST = new LinkedList<>();
+    public static final WeightMetric WEIGHT_METRIC = WeightMetric.DISTANCE;
+
+    /**
+     * Whether to prepare the metric-independent topology of a customizable hierarchy when the
+     * graph is contracted, so that the first ContractedStreetMapGraph.customize call is as fast
+     * as later ones.
+     */
+    public static final boolean CUSTOMIZABLE_HIERARCHY = false;
+
+    /**
+     * The most alternative routes a route request may ask for, and the conditions they must
+     * meet: the most they and their detours may stretch the shortest distance, the most of it
+     * they may share with routes before them, and the fraction of it around the via node that
+     * must be a shortest path. At most ALTERNATIVE_CANDIDATES via nodes are evaluated.
+     */
+    public static final int MAX_ALTERNATIVE_ROUTES = 3;
+    public static final double ALTERNATIVE_MAX_STRETCH = 0.25;
+    public static final double ALTERNATIVE_MAX_SHARING = 0.8;
+    public static final double ALTERNATIVE_LOCAL_OPTIMALITY = 0.25;
+    public static final int ALTERNATIVE_CANDIDATES = 32;
+
+    /**
+     * Whether A* searches on a StreetMapGraph are guided by landmark distances rather than the
+     * great-circle distance, and how many landmarks to precompute distances for. Routes are
+     * normally answered by the contraction hierarchy, so the landmarks are only computed on the
+     * first A* search. Each landmark costs two searches over the graph and 16 bytes per node.
+     */
+    public static final boolean USE_LANDMARK_HEURISTIC = false;
+    public static final int NUM_LANDMARKS = 16;
+
+    /**
+     * Whether routes pay for turns, by the time each takes in seconds: turns of at most
+     * STRAIGHT_TURN_DEGREES cost nothing, and turns of more than U_TURN_DEGREES, or back the
+     * way the route came, cost as much as a U-turn. Penalties apply only under the TRAVEL_TIME
+     * metric, and make every route an edge-based A* search since the contraction hierarchy
+     * cannot account for them. Turn restrictions are always obeyed.
+     */
+    public static final boolean TURN_PENALTIES = false;
+    public static final double STRAIGHT_TURN_DEGREES = 15;
+    public static final double U_TURN_DEGREES = 170;
+    public static final double RIGHT_TURN_SECONDS = 3;
+    public static final double LEFT_TURN_SECONDS = 8;
+    public static final double U_TURN_SECONDS = 30;
+    /**
+     * How much longer than the path it repairs a route that was repaired around restricted
+     * turns may be before it is replaced by a search of the whole graph. The path it repairs
+     * ignores the restrictions, so is no longer than any route that obeys them, and routes are
+     * at most this much longer than the shortest. 0 makes every repaired route the shortest.
+     */
+    public static final double TURN_REPAIR_MAX_STRETCH = 0.01;
+
+    /**
+     * Shortcuts that bypass one of this many highest-ranked nodes of a contraction hierarchy
+     * keep their nodes once unpacked, since most long routes use them. 0 disables the cache.
+     */
+    public static final int UNPACK_CACHE_NODES = 1024;
+    /** The most nodes the unpacked shortcuts of a hierarchy keep in all, about 4 bytes each. */
+    public static final int UNPACK_CACHE_CAPACITY = 1 << 22;
+
+    /** Whether to log per-round contraction statistics and a summary table of stage times. */
+    public static final boolean PROFILE_CONTRACTION = false;
+
+    /** Graph singleton instance. */
+    public static ContractedStreetMapGraph SEMANTIC_STREET_GRAPH;
 
     /** HTTP failed response. */
     public static final int HALT_RESPONSE = 500;
 
+    /** HTTP response for conditional requests whose cached response is still current. */
+    public static final int NOT_MODIFIED_RESPONSE = 304;
+
+    /** HTTP response for requests rejected because the server is overloaded. */
+    public static final int OVERLOADED_RESPONSE = 503;
+
+    /**
+     * How long a heavy request may take, including time queued, before it is better to reject
+     * it up front with OVERLOADED_RESPONSE.
+     */
+    public static final long REQUEST_DEADLINE_MS = 10_000;
+
+    /** Service time above which the concurrency limit of heavy endpoints is decreased. */
+    public static final long ADMISSION_TARGET_LATENCY_MS = 2_000;
+
     /** Flag for deploying the app to the web. */
     public static final boolean HEROKU_DEPLOYMENT = false;
 
+    /** Maximum number of server threads accepting requests and handling interactive endpoints. */
+    public static final int SERVER_THREADS = 64;
+
+    /**
+     * Number of threads handling heavy endpoints such as /raster and /route. Kept well below
+     * MAX_HEAVY_REQUESTS so that some heavy requests can queue rather than be rejected.
+     */
+    public static final int HEAVY_HANDLER_THREADS = Math.min(
+            Runtime.getRuntime().availableProcessors(), SERVER_THREADS / 4);
+
+    /**
+     * The most heavy requests that may hold server threads at once, whether handled or
+     * queued. The rest are rejected with OVERLOADED_RESPONSE, so that at least
+     * SERVER_THREADS - MAX_HEAVY_REQUESTS threads are always left for interactive endpoints.
+     */
+    public static final int MAX_HEAVY_REQUESTS = SERVER_THREADS / 2;
+
+    /**
+     * Number of threads computing the routes of /route/batch requests, shared by every batch.
+     * The heavy handler thread of each batch waits for them, so a batch counts once against
+     * the heavy admission limit however many routes it has.
+     */
+    public static final int BATCH_ROUTER_THREADS = Math.max(1, HEAVY_HANDLER_THREADS / 2);
+
     /** Default port for serving the application locally. */
     public static final int PORT = 8080;
 }
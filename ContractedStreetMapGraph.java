@@ -6,13 +6,24 @@ import pq.ExtrinsicMinPQ;
 import pq.TreeMapMinPQ;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
+import static huskymaps.Constants.CUSTOMIZABLE_HIERARCHY;
+import static huskymaps.Constants.PROFILE_CONTRACTION;
+
 public class ContractedStreetMapGraph extends StreetMapGraph {
+    private final ContractionProfile profile = new ContractionProfile();
+    /** The active hierarchy, replaced as a whole when the graph is customized. */
+    private volatile UpwardGraph upwardGraph;
+    /** The number of times the hierarchy has been replaced, counted after each replacement. */
+    private final AtomicLong hierarchyGeneration = new AtomicLong();
+    private CustomizableHierarchy customizable;
 
     public ContractedStreetMapGraph(String filename) {
-        super(filename); //construct a StreetMapGraph
+        super(filename, false); //construct a StreetMapGraph, naming its edges once contracted
         //initialize the set of uncontracted nodes
         Set<ContractableNode> uncontractedNodes = vertices().parallelStream()
                 .map(this::node) //map the ContractedStreetMapGraph.node method to each element in the vertices
@@ -22,7 +33,7 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
         int order = 0;
         Stopwatch timer = new Stopwatch();
         while (!uncontractedNodes.isEmpty()) {
-            //System.out.println("Uncontracted: " + uncontractedNodes.size());
+            long roundStart = System.nanoTime();
             // Update the priority for each node
             // sequential:
             // Map<ContractableNode, Priority> priorityUpdateMap = new HashMap<>();
@@ -32,6 +43,7 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
             // parallel:
             Map<ContractableNode, Priority> priorityUpdateMap = uncontractedNodes.parallelStream()
                     .collect(Collectors.toUnmodifiableMap(Function.identity(), Priority::new));
+            long prioritized = System.nanoTime();
             // Generate an independent node set
             // sequential:
             //            Set<ContractableNode> independetNodeSet = new HashSet<>();
@@ -44,6 +56,7 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
             Set<ContractableNode> independetNodeSet = uncontractedNodes.parallelStream()
                     .filter(contractableNode -> isIndependent(contractableNode, priorityUpdateMap))
                     .collect(Collectors.toUnmodifiableSet());
+            long selected = System.nanoTime();
             // Compute all shortcut edges in the independent node set
             // sequential:
             //            List<Shortcuts> shortcutEdgesList = new ArrayList<>();
@@ -54,16 +67,18 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
             List<Shortcuts> shortcutEdgesList = independetNodeSet.parallelStream()
                     .map(Shortcuts::new)
                     .collect(Collectors.toUnmodifiableList());
+            long computed = System.nanoTime();
             // Contract the independent nodes by inserting the precomputed shortcut edges into the graph
-            // shortcuts need to be inserted in both directions addWeightedEdge(shortcut) & (shortcut.flip())
+            // shortcuts are directed, so each direction of a two-way road gets its own shortcut
             // contracting node requires 2 additional method calls: node.setContractionOrder(order)
             // and node.updateDepths(neighboringNodes(node));
             // sequential:
+            int numShortcuts = 0;
             for (Shortcuts s : shortcutEdgesList) {
                 for (WeightedShortcut<Long> sc : s) {
                     addWeightedEdge(sc);
-                    addWeightedEdge(sc.flip());
                 }
+                numShortcuts += s.size();
             }
             for (ContractableNode cn : independetNodeSet) {
                 cn.setContractionOrder(order);
@@ -71,17 +86,121 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
             }
 
             order += 1;
+            int remaining = uncontractedNodes.size();
             // Update the uncontracted nodes by removing the independent nodes
             uncontractedNodes = uncontractedNodes.parallelStream()
                     .filter(contractableNode -> !(independetNodeSet.contains(contractableNode)))
                     .collect(Collectors.toUnmodifiableSet());
+            ContractionProfile.Round round = profile.endRound(remaining, independetNodeSet.size(), numShortcuts,
+                    prioritized - roundStart, selected - prioritized, computed - selected,
+                    System.nanoTime() - computed);
+            if (PROFILE_CONTRACTION) {
+                System.out.println(round);
+            }
             // for (ContractableNode cn: uncontractedNodes) {
             //      if (!(independetNodeSet.contains(cn))) {
             //                uncontractedNodes.add(cn);
             //      }
             // }
         }
+        upwardGraph = new UpwardGraph(this);
+        if (CUSTOMIZABLE_HIERARCHY) {
+            customizable();
+        }
         System.out.println("Contraction hierarchies generated in " + timer.elapsedTime() + " seconds");
+        if (PROFILE_CONTRACTION) {
+            System.out.println(profile.summary());
+        }
+        // Directions name every edge of a route, so the index is ready before the first request
+        indexEdgeNames();
+    }
+
+    /**
+     * Returns the contraction hierarchy in compressed form, for batch and many-to-many queries.
+     * Queries should search the hierarchy returned at their start throughout, since it is
+     * replaced whenever the graph is customized.
+     */
+    public UpwardGraph upwardGraph() {
+        return upwardGraph;
+    }
+
+    /**
+     * Replaces the weights used by queries on upwardGraph() with new weights for the road edges,
+     * for example to close roads or apply traffic speeds. Only the hierarchy is customized: the
+     * edges returned by neighbors keep the weights the graph was built with, so searches that
+     * run on them must weigh them with upwardGraph().roadWeight. Queries that are running when
+     * the hierarchy is replaced finish on the old one.
+     * @param weights The new weight of each road edge, or infinity to close it.
+     */
+    public synchronized void customize(ToDoubleFunction<WeightedEdge<Long>> weights) {
+        upwardGraph = customizable().customize(weights);
+        hierarchyGeneration.incrementAndGet();
+    }
+
+    /**
+     * Returns how many times the hierarchy has been customized, so that cached results computed
+     * on it can tell which weights they used. It is counted after the hierarchy is replaced, so
+     * a result computed after reading a generation is never older than it.
+     */
+    public long hierarchyGeneration() {
+        return hierarchyGeneration.get();
+    }
+
+    /**
+     * Replaces the weights used by queries on upwardGraph() with the weights of the given metric.
+     * @param metric The metric to weigh road edges with.
+     */
+    public void customize(WeightMetric metric) {
+        customize(e -> {
+            double miles = location(e.from()).greatCircleDistance(location(e.to()));
+            int attributes = e instanceof RoadEdge
+                    ? ((RoadEdge) e).attributes()
+                    : RoadEdge.pack(RoadClass.UNCLASSIFIED, 0);
+            return metric.weight(miles, attributes);
+        });
+    }
+
+    /**
+     * Returns the metric-independent topology that customization starts from, building it on
+     * first use. Building it takes an order of magnitude longer than customizing, though still
+     * far less than contraction.
+     */
+    private synchronized CustomizableHierarchy customizable() {
+        if (customizable == null) {
+            customizable = new CustomizableHierarchy(this);
+        }
+        return customizable;
+    }
+
+    /**
+     * Returns the table of shortest distances from every source to every target, computed with
+     * one search per source and one per target rather than one route per pair.
+     * @param sources The ids of the source nodes.
+     * @param targets The ids of the target nodes.
+     * @return The distance from sources.get(i) to targets.get(j) at [i][j], or infinity if
+     * there is no path. Nodes that are not on a road are unreachable.
+     */
+    public double[][] distanceMatrix(List<Long> sources, List<Long> targets) {
+        UpwardGraph graph = upwardGraph;
+        int[] sourceRanks = sources.stream().mapToInt(graph::rank).toArray();
+        int[] targetRanks = targets.stream().mapToInt(graph::rank).toArray();
+        return DistanceTable.compute(graph, sourceRanks, targetRanks);
+    }
+
+    /**
+     * Returns the shortest distances from the given node to every node in the hierarchy.
+     * @param source The id of the source node.
+     * @return The distance to each node indexed by its rank in upwardGraph(), or infinity for
+     * unreachable nodes.
+     */
+    public double[] distancesFrom(long source) {
+        UpwardGraph graph = upwardGraph;
+        return graph.distancesFrom(graph.rank(source));
+    }
+
+    /** Returns the per-round measurements of the contraction preprocessing. */
+    public ContractionProfile contractionProfile() {
+        return profile;
     }
 
     /** Return true if and only if the node is independent within its 2-nearest neighborhood. */
@@ -117,10 +236,12 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
         Shortcuts shortcuts;
 
         Priority(ContractableNode node) {
-            List<WeightedEdge<Long>> neighbors = neighbors(node.id());
-            int numTrueNeighbors = neighbors.size() - numContracted(neighbors);
+            List<WeightedEdge<Long>> incoming = incoming(node.id());
+            List<WeightedEdge<Long>> outgoing = neighbors(node.id());
+            int numTrueNeighbors = incoming.size() - numContracted(incoming, false)
+                    + outgoing.size() - numContracted(outgoing, true);
             if (numTrueNeighbors > 0) {
-                shortcuts = new Shortcuts(neighbors);
+                shortcuts = new Shortcuts(incoming, outgoing);
                 double edgeQuotient = shortcuts.size() / (double) numTrueNeighbors;
                 value = 3 * edgeQuotient + node.getDepth();
             } else {
@@ -129,11 +250,11 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
             }
         }
 
-        /** Return the number of contracted neighbors. */
-        int numContracted(List<WeightedEdge<Long>> neighbors) {
+        /** Return the number of edges to (or from, if not outgoing) contracted neighbors. */
+        int numContracted(List<WeightedEdge<Long>> edges, boolean outgoing) {
             int contractedNeighbors = 0;
-            for (WeightedEdge<Long> edge : neighbors) {
-                ContractableNode neighbor = node(edge.to());
+            for (WeightedEdge<Long> edge : edges) {
+                ContractableNode neighbor = node(outgoing ? edge.to() : edge.from());
                 if (neighbor.isContracted()) {
                     contractedNeighbors += 1;
                 }
@@ -151,25 +272,28 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
         final List<WeightedShortcut<Long>> result = new ArrayList<>();
 
         Shortcuts(ContractableNode node) {
-            this(neighbors(node.id()));
+            this(incoming(node.id()), neighbors(node.id()));
         }
 
-        Shortcuts(List<WeightedEdge<Long>> neighbors) {
-            int i = 1;
-            for (WeightedEdge<Long> srcEdge : neighbors) {
-                ContractableNode src = node(srcEdge.to());
+        // every path from an uncontracted node into the contracted node and out to another
+        // uncontracted node needs a shortcut, unless a witness path is at least as short
+        Shortcuts(List<WeightedEdge<Long>> incoming, List<WeightedEdge<Long>> outgoing) {
+            for (WeightedEdge<Long> srcEdge : incoming) {
+                ContractableNode src = node(srcEdge.from());
                 if (!src.isContracted()) {
-                    for (WeightedEdge<Long> destEdge : neighbors.subList(i, neighbors.size())) {
+                    for (WeightedEdge<Long> destEdge : outgoing) {
                         ContractableNode dest = node(destEdge.to());
+                        if (dest.isContracted() || dest.equals(src)) {
+                            continue;
+                        }
                         WeightedShortcut<Long> shortcut = new WeightedShortcut<>(
-                                srcEdge.flip(), destEdge, srcEdge.weight() + destEdge.weight(), "Shortcut"
+                                srcEdge, destEdge, srcEdge.weight() + destEdge.weight(), "Shortcut"
                         );
-                        if (!dest.isContracted() && shortcutRequired(src.id(), dest.id(), shortcut)) {
+                        if (shortcutRequired(src.id(), dest.id(), shortcut)) {
                             result.add(shortcut);
                         }
                     }
                 }
-                i += 1;
             }
         }
 
@@ -187,10 +311,13 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
         boolean shortcutRequired(long start, long end, WeightedShortcut<Long> shortcut) {
             Map<Long, Double> distTo = new HashMap<>();
             ExtrinsicMinPQ<Long> pq = new TreeMapMinPQ<>();
-            pq.add(start, estimatedDistanceToGoal(start, end));
+            // The great-circle bound needs no precomputation, so contraction never builds landmarks
+            pq.add(start, greatCircleEstimate(start, end));
             distTo.put(start, 0.0);
+            int settled = 0;
             while (!pq.isEmpty() && pq.getSmallest() != end && shortcut.weight() >= distTo.get(pq.getSmallest())) {
                 long v = pq.removeSmallest();
+                settled += 1;
                 for (WeightedEdge<Long> edge : neighbors(v)) {
                     long w = edge.to();
                     if (!node(w).isContracted() && !edge.equals(shortcut.srcEdge) && !edge.equals(shortcut.destEdge)) {
@@ -198,7 +325,7 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
                         double thisDistance = distTo.get(v) + edge.weight();
                         if (thisDistance < bestDistance) {
                             distTo.put(w, thisDistance);
-                            double priority = estimatedDistanceToGoal(w, end) + thisDistance;
+                            double priority = greatCircleEstimate(w, end) + thisDistance;
                             if (pq.contains(w)) {
                                 pq.changePriority(w, priority);
                             } else {
@@ -208,18 +335,21 @@ public class ContractedStreetMapGraph extends StreetMapGraph {
                     }
                 }
             }
+            profile.witnessSearch(settled);
             return shortcut.weight() < distTo.getOrDefault(end, Double.POSITIVE_INFINITY);
         }
     }
 
-    /** Return a list of neighboring nodes. */
+    /** Return a list of the nodes joined to the given node by an edge in either direction. */
     private List<ContractableNode> neighboringNodes(ContractableNode node) {
-        List<WeightedEdge<Long>> neighbors = neighbors(node.id());
-        List<ContractableNode> result = new ArrayList<>(neighbors.size());
-        for (WeightedEdge<Long> e : neighbors) {
+        Set<ContractableNode> result = new LinkedHashSet<>();
+        for (WeightedEdge<Long> e : neighbors(node.id())) {
             result.add(node(e.to()));
         }
-        return result;
+        for (WeightedEdge<Long> e : incoming(node.id())) {
+            result.add(node(e.from()));
+        }
+        return new ArrayList<>(result);
     }
 
     /** Return the node with the given id. */
@@ -0,0 +1,116 @@
+package huskymaps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-round measurements of the ContractedStreetMapGraph preprocessing, used to find the stage
+ * that stops scaling as the input grows. Each round computes priorities, picks an independent
+ * node set, computes its shortcuts and inserts them into the graph.
+ */
+public class ContractionProfile {
+
+    /** The measurements of one contraction round. */
+    public static class Round {
+        public final int round;
+        /** Uncontracted nodes at the start of the round. */
+        public final int remaining;
+        /** Nodes contracted in this round. */
+        public final int independentSetSize;
+        /** Shortcuts inserted in this round, counting each direction once. */
+        public final int shortcutsAdded;
+        /** Witness searches run in this round, and the nodes they settled. */
+        public final long witnessSearches;
+        public final long witnessSettled;
+        /** Time spent in each stage, in nanoseconds. */
+        public final long priorityNanos;
+        public final long independenceNanos;
+        public final long shortcutNanos;
+        public final long insertionNanos;
+
+        Round(int round, int remaining, int independentSetSize, int shortcutsAdded,
+              long witnessSearches, long witnessSettled, long priorityNanos,
+              long independenceNanos, long shortcutNanos, long insertionNanos) {
+            this.round = round;
+            this.remaining = remaining;
+            this.independentSetSize = independentSetSize;
+            this.shortcutsAdded = shortcutsAdded;
+            this.witnessSearches = witnessSearches;
+            this.witnessSettled = witnessSettled;
+            this.priorityNanos = priorityNanos;
+            this.independenceNanos = independenceNanos;
+            this.shortcutNanos = shortcutNanos;
+            this.insertionNanos = insertionNanos;
+        }
+
+        /** Returns the average number of nodes settled per witness search. */
+        public double averageWitnessSettled() {
+            return witnessSearches == 0 ? 0 : (double) witnessSettled / witnessSearches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("contraction round=%d remaining=%d independent=%d shortcuts=%d "
+                            + "witness_searches=%d avg_witness_settled=%.1f priority_ms=%.1f "
+                            + "independence_ms=%.1f shortcuts_ms=%.1f insertion_ms=%.1f",
+                    round, remaining, independentSetSize, shortcutsAdded, witnessSearches,
+                    averageWitnessSettled(), priorityNanos / 1e6, independenceNanos / 1e6,
+                    shortcutNanos / 1e6, insertionNanos / 1e6);
+        }
+    }
+
+    private final List<Round> rounds = new ArrayList<>();
+    private final LongAdder witnessSearches = new LongAdder();
+    private final LongAdder witnessSettled = new LongAdder();
+
+    /** Records one witness search that settled the given number of nodes. Thread-safe. */
+    void witnessSearch(int settled) {
+        witnessSearches.increment();
+        witnessSettled.add(settled);
+    }
+
+    /** Records a finished round, attributing all witness searches since the last round to it. */
+    Round endRound(int remaining, int independentSetSize, int shortcutsAdded, long priorityNanos,
+                   long independenceNanos, long shortcutNanos, long insertionNanos) {
+        Round r = new Round(rounds.size(), remaining, independentSetSize, shortcutsAdded,
+                witnessSearches.sumThenReset(), witnessSettled.sumThenReset(), priorityNanos,
+                independenceNanos, shortcutNanos, insertionNanos);
+        rounds.add(r);
+        return r;
+    }
+
+    /** Returns every recorded round in order. */
+    public List<Round> rounds() {
+        return Collections.unmodifiableList(rounds);
+    }
+
+    /** Returns a table of the time spent in each stage over all rounds. */
+    public String summary() {
+        long[] stageNanos = new long[4];
+        long shortcuts = 0;
+        long searches = 0;
+        long settled = 0;
+        for (Round r : rounds) {
+            stageNanos[0] += r.priorityNanos;
+            stageNanos[1] += r.independenceNanos;
+            stageNanos[2] += r.shortcutNanos;
+            stageNanos[3] += r.insertionNanos;
+            shortcuts += r.shortcutsAdded;
+            searches += r.witnessSearches;
+            settled += r.witnessSettled;
+        }
+        long total = stageNanos[0] + stageNanos[1] + stageNanos[2] + stageNanos[3];
+        String[] stages = {"priority", "independence", "shortcuts", "insertion"};
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-14s %12s %8s%n", "stage", "seconds", "share"));
+        for (int i = 0; i < stages.length; i += 1) {
+            sb.append(String.format("%-14s %12.3f %7.1f%%%n", stages[i], stageNanos[i] / 1e9,
+                    total == 0 ? 0 : 100.0 * stageNanos[i] / total));
+        }
+        sb.append(String.format("%d rounds, %d shortcuts, %d witness searches settling %.1f nodes on average",
+                rounds.size(), shortcuts, searches, searches == 0 ? 0 : (double) settled / searches));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,374 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static huskymaps.Constants.ROOT_LAT;
+
+/**
+ * The metric-independent topology of a customizable contraction hierarchy, which turns new
+ * weights for the road edges into an UpwardGraph in a fraction of the time contraction takes.
+ *
+ * The topology contracts the road network without witness searches: contracting a node joins
+ * every pair of its higher-ranked neighbors, so the arcs are the same whatever the weights are.
+ * Without witness searches, the order the nodes are contracted in decides how many arcs there
+ * are, so it comes from nested dissection rather than from the metric-dependent order of the
+ * original hierarchy: the map is cut in two along its longer side, the nodes on the smaller side
+ * of the cut rank above both halves, and each half is dissected the same way. Then every shortest path still climbs to its highest node
+ * and descends from it, and the shortest arc between two nodes either is a road edge or passes
+ * through a lower node adjacent to both, forming a lower triangle.
+ *
+ * Customization computes arc weights bottom-up from the weights of the road edges and of the
+ * lower triangles. An arc depends only on arcs whose tails are on lower levels, so the arcs of
+ * each level are customized in parallel.
+ */
+public class CustomizableHierarchy {
+    /** Cells with at most this many nodes are not dissected further. */
+    private static final int LEAF_SIZE = 16;
+    /** Levels with fewer arcs are customized on one thread, since they finish sooner than forking. */
+    private static final int PARALLEL_LEVEL_SIZE = 4096;
+
+    private final long[] ids;
+    private final Map<Long, Integer> ranks;
+    private final int[] firstEdge;
+    private final int[] tails;
+    private final int[] heads;
+    /** The road edges from tail to head and from head to tail of each arc, or null if none. */
+    private final WeightedEdge<Long>[][] upRoads;
+    private final WeightedEdge<Long>[][] downRoads;
+    /** The lower triangles of arc e are (triangleLower[t], triangleUpper[t]) for t in its range. */
+    private final int[] firstTriangle;
+    private final int[] triangleLower;
+    private final int[] triangleUpper;
+    /** The arcs ordered by the level of their tails, with the arcs of level l in its range. */
+    private final int[] levelArcs;
+    private final int[] firstLevelArc;
+
+    /**
+     * Builds the topology from the road edges of the given graph, ignoring its shortcuts. The
+     * nodes are the nodes of its hierarchy, ordered by nested dissection.
+     * @param g The contracted graph.
+     */
+    @SuppressWarnings("unchecked")
+    CustomizableHierarchy(ContractedStreetMapGraph g) {
+        UpwardGraph hierarchy = g.upwardGraph();
+        int n = hierarchy.size();
+        List<Set<Integer>> neighbors = new ArrayList<>(n);
+        for (int v = 0; v < n; v += 1) {
+            neighbors.add(new HashSet<>());
+        }
+        for (int v = 0; v < n; v += 1) {
+            for (WeightedEdge<Long> e : g.neighbors(hierarchy.id(v))) {
+                int w = hierarchy.rank(e.to());
+                if (!(e instanceof WeightedShortcut) && w != UpwardGraph.NONE && w != v) {
+                    neighbors.get(v).add(w);
+                    neighbors.get(w).add(v);
+                }
+            }
+        }
+        int[][] adjacency = new int[n][];
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int v = 0; v < n; v += 1) {
+            adjacency[v] = neighbors.get(v).stream().mapToInt(Integer::intValue).toArray();
+            lats[v] = g.location(hierarchy.id(v)).lat();
+            lons[v] = g.location(hierarchy.id(v)).lon();
+        }
+        int[] order = new int[n];
+        new Dissection(adjacency, lats, lons, order).dissect(IntStream.range(0, n).toArray(), 0);
+        ids = new long[n];
+        ranks = new HashMap<>();
+        int[] newRanks = new int[n];
+        for (int rank = 0; rank < n; rank += 1) {
+            ids[rank] = hierarchy.id(order[rank]);
+            ranks.put(ids[rank], rank);
+            newRanks[order[rank]] = rank;
+        }
+
+        // Contract in rank order, joining the higher neighbors of every node
+        List<Set<Integer>> higher = new ArrayList<>(n);
+        for (int v = 0; v < n; v += 1) {
+            higher.add(new HashSet<>());
+        }
+        for (int v = 0; v < n; v += 1) {
+            for (int w : adjacency[v]) {
+                higher.get(Math.min(newRanks[v], newRanks[w])).add(Math.max(newRanks[v], newRanks[w]));
+            }
+        }
+        firstEdge = new int[n + 1];
+        List<int[]> sortedHigher = new ArrayList<>(n);
+        for (int v = 0; v < n; v += 1) {
+            int[] upper = higher.get(v).stream().mapToInt(Integer::intValue).sorted().toArray();
+            for (int i = 0; i < upper.length; i += 1) {
+                for (int j = i + 1; j < upper.length; j += 1) {
+                    higher.get(upper[i]).add(upper[j]);
+                }
+            }
+            sortedHigher.add(upper);
+            higher.set(v, null);
+            firstEdge[v + 1] = firstEdge[v] + upper.length;
+        }
+        int numArcs = firstEdge[n];
+        tails = new int[numArcs];
+        heads = new int[numArcs];
+        int[] levels = new int[n];
+        for (int v = 0; v < n; v += 1) {
+            int e = firstEdge[v];
+            for (int w : sortedHigher.get(v)) {
+                tails[e] = v;
+                heads[e] = w;
+                levels[w] = Math.max(levels[w], levels[v] + 1);
+                e += 1;
+            }
+        }
+
+        // Sort the road edges into the arcs they run along
+        upRoads = new WeightedEdge[numArcs][];
+        downRoads = new WeightedEdge[numArcs][];
+        for (int v = 0; v < n; v += 1) {
+            for (WeightedEdge<Long> e : g.neighbors(ids[v])) {
+                int w = rank(e.to());
+                if (e instanceof WeightedShortcut || w == UpwardGraph.NONE || w == v) {
+                    continue;
+                }
+                int arc = arc(Math.min(v, w), Math.max(v, w));
+                WeightedEdge<Long>[][] roads = v < w ? upRoads : downRoads;
+                roads[arc] = roads[arc] == null ? new WeightedEdge[]{e} : append(roads[arc], e);
+            }
+        }
+
+        // Find the lower triangles of every arc, counting them first
+        firstTriangle = new int[numArcs + 1];
+        for (int v = 0; v < n; v += 1) {
+            for (int a = firstEdge[v]; a < firstEdge[v + 1]; a += 1) {
+                for (int b = a + 1; b < firstEdge[v + 1]; b += 1) {
+                    firstTriangle[arc(heads[a], heads[b]) + 1] += 1;
+                }
+            }
+        }
+        for (int e = 0; e < numArcs; e += 1) {
+            firstTriangle[e + 1] += firstTriangle[e];
+        }
+        triangleLower = new int[firstTriangle[numArcs]];
+        triangleUpper = new int[firstTriangle[numArcs]];
+        int[] next = Arrays.copyOf(firstTriangle, numArcs);
+        for (int v = 0; v < n; v += 1) {
+            for (int a = firstEdge[v]; a < firstEdge[v + 1]; a += 1) {
+                for (int b = a + 1; b < firstEdge[v + 1]; b += 1) {
+                    int e = arc(heads[a], heads[b]);
+                    triangleLower[next[e]] = a;
+                    triangleUpper[next[e]] = b;
+                    next[e] += 1;
+                }
+            }
+        }
+
+        // Group the arcs by the level of their tails
+        int numLevels = n == 0 ? 0 : Arrays.stream(levels).max().getAsInt() + 1;
+        firstLevelArc = new int[numLevels + 1];
+        for (int e = 0; e < numArcs; e += 1) {
+            firstLevelArc[levels[tails[e]] + 1] += 1;
+        }
+        for (int l = 0; l < numLevels; l += 1) {
+            firstLevelArc[l + 1] += firstLevelArc[l];
+        }
+        levelArcs = new int[numArcs];
+        int[] nextArc = Arrays.copyOf(firstLevelArc, numLevels);
+        for (int e = 0; e < numArcs; e += 1) {
+            levelArcs[nextArc[levels[tails[e]]]] = e;
+            nextArc[levels[tails[e]]] += 1;
+        }
+    }
+
+    /** Returns the number of arcs, counting each pair of adjacent nodes once. */
+    public int numArcs() {
+        return heads.length;
+    }
+
+    /** Returns the number of lower triangles. */
+    public int numTriangles() {
+        return triangleLower.length;
+    }
+
+    /**
+     * Computes the hierarchy for new road edge weights. Road edges are copied with their new
+     * weights, and every arc that is shorter through a lower triangle becomes a shortcut, so
+     * paths found on the result unpack into edges that carry the new weights.
+     * @param weights The new weight of each road edge, or infinity to close it.
+     * @return The customized hierarchy.
+     */
+    @SuppressWarnings("unchecked")
+    UpwardGraph customize(ToDoubleFunction<WeightedEdge<Long>> weights) {
+        int numArcs = numArcs();
+        double[] upWeights = new double[numArcs];
+        double[] downWeights = new double[numArcs];
+        WeightedEdge<Long>[] upEdges = new WeightedEdge[numArcs];
+        WeightedEdge<Long>[] downEdges = new WeightedEdge[numArcs];
+        for (int l = 0; l + 1 < firstLevelArc.length; l += 1) {
+            IntStream arcs = IntStream.range(firstLevelArc[l], firstLevelArc[l + 1]);
+            if (firstLevelArc[l + 1] - firstLevelArc[l] >= PARALLEL_LEVEL_SIZE) {
+                arcs = arcs.parallel();
+            }
+            arcs.forEach(i -> {
+                int e = levelArcs[i];
+                WeightedEdge<Long> up = lightest(upRoads[e], weights);
+                WeightedEdge<Long> down = lightest(downRoads[e], weights);
+                double upWeight = up == null ? Double.POSITIVE_INFINITY : up.weight();
+                double downWeight = down == null ? Double.POSITIVE_INFINITY : down.weight();
+                int upVia = -1;
+                int downVia = -1;
+                for (int t = firstTriangle[e]; t < firstTriangle[e + 1]; t += 1) {
+                    // The triangle joins the lower node to the tail by one arc and the head by the other
+                    int lower = triangleLower[t];
+                    int upper = triangleUpper[t];
+                    if (downWeights[lower] + upWeights[upper] < upWeight) {
+                        upWeight = downWeights[lower] + upWeights[upper];
+                        upVia = t;
+                    }
+                    if (downWeights[upper] + upWeights[lower] < downWeight) {
+                        downWeight = downWeights[upper] + upWeights[lower];
+                        downVia = t;
+                    }
+                }
+                if (upVia != -1) {
+                    up = new WeightedShortcut<>(downEdges[triangleLower[upVia]], upEdges[triangleUpper[upVia]],
+                            upWeight, "Shortcut");
+                }
+                if (downVia != -1) {
+                    down = new WeightedShortcut<>(downEdges[triangleUpper[downVia]], upEdges[triangleLower[downVia]],
+                            downWeight, "Shortcut");
+                }
+                upWeights[e] = upWeight;
+                downWeights[e] = downWeight;
+                upEdges[e] = up;
+                downEdges[e] = down;
+            });
+        }
+        return new UpwardGraph(ids, ranks, firstEdge, tails, heads, upWeights, downWeights, upEdges, downEdges,
+                weights);
+    }
+
+    /** Returns a copy of the lightest of the road edges with its new weight, or null if all are closed. */
+    private static WeightedEdge<Long> lightest(WeightedEdge<Long>[] roads, ToDoubleFunction<WeightedEdge<Long>> weights) {
+        if (roads == null) {
+            return null;
+        }
+        WeightedEdge<Long> lightest = null;
+        double lightestWeight = Double.POSITIVE_INFINITY;
+        for (WeightedEdge<Long> road : roads) {
+            double weight = weights.applyAsDouble(road);
+            if (weight < lightestWeight) {
+                lightest = road;
+                lightestWeight = weight;
+            }
+        }
+        if (lightest == null) {
+            return null;
+        }
+        if (lightest instanceof RoadEdge) {
+            return new RoadEdge(lightest.from(), lightest.to(), lightestWeight, lightest.name(),
+                    ((RoadEdge) lightest).attributes());
+        }
+        return new WeightedEdge<>(lightest.from(), lightest.to(), lightestWeight, lightest.name());
+    }
+
+    /** Returns the arc between a node and a higher-ranked neighbor. */
+    private int arc(int tail, int head) {
+        return Arrays.binarySearch(heads, firstEdge[tail], firstEdge[tail + 1], head);
+    }
+
+    private int rank(long id) {
+        return ranks.getOrDefault(id, UpwardGraph.NONE);
+    }
+
+    /** Orders the nodes by recursive geometric bisection, with the separators of each cut last. */
+    private static class Dissection {
+        private final int[][] adjacency;
+        private final double[] lats;
+        private final double[] lons;
+        private final int[] order;
+        /** Which side of the current cut each node of the current cell is on, or 0 outside it. */
+        private final byte[] sides;
+
+        Dissection(int[][] adjacency, double[] lats, double[] lons, int[] order) {
+            this.adjacency = adjacency;
+            this.lats = lats;
+            this.lons = lons;
+            this.order = order;
+            this.sides = new byte[adjacency.length];
+        }
+
+        /**
+         * Writes the nodes of the cell into order starting at the given position.
+         * @return The position after the last node written.
+         */
+        int dissect(int[] cell, int position) {
+            if (cell.length <= LEAF_SIZE) {
+                System.arraycopy(cell, 0, order, position, cell.length);
+                return position + cell.length;
+            }
+            // A degree of longitude is shorter than a degree of latitude away from the equator
+            double lonScale = Math.cos(Math.toRadians(ROOT_LAT));
+            double[] coordinates = extent(cell, lats) > lonScale * extent(cell, lons) ? lats : lons;
+            int[] sorted = Arrays.stream(cell).boxed()
+                    .sorted((v, w) -> Double.compare(coordinates[v], coordinates[w]))
+                    .mapToInt(Integer::intValue).toArray();
+            int half = sorted.length / 2;
+            for (int i = 0; i < sorted.length; i += 1) {
+                sides[sorted[i]] = (byte) (i < half ? 1 : 2);
+            }
+            // Separate the halves by the boundary nodes of whichever half has fewer
+            List<Integer> lowBoundary = new ArrayList<>();
+            List<Integer> highBoundary = new ArrayList<>();
+            for (int v : sorted) {
+                for (int w : adjacency[v]) {
+                    if (sides[w] != 0 && sides[w] != sides[v]) {
+                        (sides[v] == 1 ? lowBoundary : highBoundary).add(v);
+                        break;
+                    }
+                }
+            }
+            List<Integer> separator = lowBoundary.size() <= highBoundary.size() ? lowBoundary : highBoundary;
+            for (int v : separator) {
+                sides[v] = 3;
+            }
+            int[] low = Arrays.stream(sorted).filter(v -> sides[v] == 1).toArray();
+            int[] high = Arrays.stream(sorted).filter(v -> sides[v] == 2).toArray();
+            for (int v : sorted) {
+                sides[v] = 0;
+            }
+            position = dissect(low, position);
+            position = dissect(high, position);
+            for (int v : separator) {
+                order[position] = v;
+                position += 1;
+            }
+            return position;
+        }
+
+        private static double extent(int[] cell, double[] coordinates) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int v : cell) {
+                min = Math.min(min, coordinates[v]);
+                max = Math.max(max, coordinates[v]);
+            }
+            return max - min;
+        }
+    }
+
+    private static WeightedEdge<Long>[] append(WeightedEdge<Long>[] roads, WeightedEdge<Long> road) {
+        WeightedEdge<Long>[] result = Arrays.copyOf(roads, roads.length + 1);
+        result[roads.length] = road;
+        return result;
+    }
+}
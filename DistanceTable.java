@@ -0,0 +1,95 @@
+package huskymaps;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes many-to-many distance tables on an UpwardGraph with bucket-based queries, so that
+ * a table of N sources and M targets costs N + M searches rather than N * M.
+ *
+ * A complete backward search from every target leaves a (target, distance) entry in the bucket
+ * of each node it settles. A complete forward search from every source then combines its
+ * distance to each settled node with the entries in that node's bucket. Every shortest path in
+ * the hierarchy climbs to its highest node and descends from it, so that node is settled by
+ * both searches and the minimum over all buckets is the shortest distance.
+ *
+ * Turn restrictions are ignored: the buckets keep distances rather than paths, so there is
+ * nothing to repair, and a distance may be shorter than any route that obeys them.
+ */
+class DistanceTable {
+
+    /**
+     * Returns the table of shortest distances between the given nodes.
+     * @param graph The graph to search.
+     * @param sources The ranks of the source nodes, or NONE for nodes not in the hierarchy.
+     * @param targets The ranks of the target nodes, or NONE for nodes not in the hierarchy.
+     * @return The distance from sources[i] to targets[j] at [i][j], or infinity if there is no
+     * path.
+     */
+    static double[][] compute(UpwardGraph graph, int[] sources, int[] targets) {
+        // Search backward from every target, keeping the nodes each search settled
+        int[][] settledNodes = new int[targets.length][];
+        double[][] settledDistances = new double[targets.length][];
+        IntStream.range(0, targets.length).parallel().forEach(j -> {
+            if (targets[j] == UpwardGraph.NONE) {
+                settledNodes[j] = new int[0];
+                settledDistances[j] = new double[0];
+                return;
+            }
+            SearchWorkspace workspace = SearchWorkspace.forCurrentThread(graph.size());
+            HierarchyQuery.search(graph, workspace, targets[j], false);
+            int numSettled = workspace.numSettled();
+            settledNodes[j] = new int[numSettled];
+            settledDistances[j] = new double[numSettled];
+            for (int i = 0; i < numSettled; i += 1) {
+                int v = workspace.settled(i);
+                settledNodes[j][i] = v;
+                settledDistances[j][i] = workspace.distTo(v);
+            }
+        });
+
+        // Counting sort the entries into one contiguous bucket per node
+        int[] bucketStart = new int[graph.size() + 1];
+        for (int[] nodes : settledNodes) {
+            for (int v : nodes) {
+                bucketStart[v + 1] += 1;
+            }
+        }
+        for (int v = 0; v < graph.size(); v += 1) {
+            bucketStart[v + 1] += bucketStart[v];
+        }
+        int[] bucketTargets = new int[bucketStart[graph.size()]];
+        double[] bucketDistances = new double[bucketTargets.length];
+        int[] next = Arrays.copyOf(bucketStart, graph.size());
+        for (int j = 0; j < targets.length; j += 1) {
+            for (int i = 0; i < settledNodes[j].length; i += 1) {
+                int slot = next[settledNodes[j][i]]++;
+                bucketTargets[slot] = j;
+                bucketDistances[slot] = settledDistances[j][i];
+            }
+        }
+
+        // Search forward from every source, scanning the bucket of each settled node
+        double[][] table = new double[sources.length][targets.length];
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            double[] row = table[i];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            if (sources[i] == UpwardGraph.NONE) {
+                return;
+            }
+            SearchWorkspace workspace = SearchWorkspace.forCurrentThread(graph.size());
+            HierarchyQuery.search(graph, workspace, sources[i], true);
+            for (int k = 0; k < workspace.numSettled(); k += 1) {
+                int v = workspace.settled(k);
+                double d = workspace.distTo(v);
+                for (int b = bucketStart[v]; b < bucketStart[v + 1]; b += 1) {
+                    double thisDistance = d + bucketDistances[b];
+                    if (thisDistance < row[bucketTargets[b]]) {
+                        row[bucketTargets[b]] = thisDistance;
+                    }
+                }
+            }
+        });
+        return table;
+    }
+}
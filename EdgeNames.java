@@ -0,0 +1,68 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+/**
+ * The names of the original edges of a StreetMapGraph, indexed by their ends in an open
+ * addressing hash table of primitive arrays, so that the name of the edge between two nodes
+ * is found in constant time without copying or scanning neighbor lists. Where there are
+ * parallel edges, the lightest one names the pair. Shortcuts are not indexed.
+ */
+public class EdgeNames {
+    private final long[] froms;
+    private final long[] tos;
+    private final double[] weights;
+    /** The name of the edge in each slot, or null if the slot is empty. */
+    private final String[] names;
+    private final int mask;
+
+    public EdgeNames(StreetMapGraph g) {
+        int numEdges = 0;
+        for (long v : g.vertices()) {
+            numEdges += g.neighbors(v).size();
+        }
+        // Keep the table at most half full so that probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(1, 2 * numEdges)) << 1;
+        froms = new long[capacity];
+        tos = new long[capacity];
+        weights = new double[capacity];
+        names = new String[capacity];
+        mask = capacity - 1;
+        for (long v : g.vertices()) {
+            for (WeightedEdge<Long> e : g.neighbors(v)) {
+                if (!(e instanceof WeightedShortcut)) {
+                    put(e.from(), e.to(), e.weight(), e.name() == null ? "" : e.name());
+                }
+            }
+        }
+    }
+
+    /** Returns the name of the edge from one node to another, or null if there is none. */
+    public String name(long from, long to) {
+        for (int i = slot(from, to); names[i] != null; i = (i + 1) & mask) {
+            if (froms[i] == from && tos[i] == to) {
+                return names[i];
+            }
+        }
+        return null;
+    }
+
+    private void put(long from, long to, double weight, String name) {
+        int i = slot(from, to);
+        while (names[i] != null && !(froms[i] == from && tos[i] == to)) {
+            i = (i + 1) & mask;
+        }
+        if (names[i] == null || weight < weights[i]) {
+            froms[i] = from;
+            tos[i] = to;
+            weights[i] = weight;
+            names[i] = name;
+        }
+    }
+
+    /** Returns the first slot to probe for the edge between two nodes. */
+    private int slot(long from, long to) {
+        long h = (from * 31 + to) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,15 @@
+package huskymaps;
+
+/** An estimate of the shortest distance between two nodes of a StreetMapGraph. */
+@FunctionalInterface
+public interface Heuristic {
+
+    /**
+     * Returns a lower bound on the shortest distance from S to GOAL, so that A* searches guided
+     * by it still find shortest paths.
+     * @param s The id of the start node.
+     * @param goal The id of the goal node.
+     * @return The estimated distance.
+     */
+    double estimate(long s, long goal);
+}
@@ -0,0 +1,183 @@
+package huskymaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable shortest path query over an UpwardGraph. The forward search explores every node
+ * above the source, then the backward search explores nodes above the target until their
+ * distance exceeds the best meeting node found so far.
+ *
+ * A query holds its workspaces between runs, so each thread should keep its own.
+ */
+public class HierarchyQuery {
+    private final UpwardGraph graph;
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+    private final PathUnpacker unpacker;
+    /** The edges of the forward half of the last path, from the meeting node down. */
+    private int[] forwardEdges = new int[16];
+    private int source = UpwardGraph.NONE;
+    private int target = UpwardGraph.NONE;
+    private int meeting = UpwardGraph.NONE;
+    private double distance = Double.POSITIVE_INFINITY;
+
+    public HierarchyQuery(UpwardGraph graph) {
+        this.graph = graph;
+        this.forward = new SearchWorkspace(graph.size());
+        this.backward = new SearchWorkspace(graph.size());
+        this.unpacker = new PathUnpacker(graph);
+    }
+
+    /** Returns the graph this query searches. */
+    public UpwardGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Computes the shortest path between two nodes.
+     * @param source The rank of the start node.
+     * @param target The rank of the end node.
+     * @return The length of the shortest path, or infinity if there is none.
+     */
+    public double run(int source, int target) {
+        return run(source, target, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Computes the shortest path between two nodes if it is no longer than the limit. Neither
+     * search explores nodes farther away than the limit, so a tight one makes the query cheap.
+     * @param source The rank of the start node.
+     * @param target The rank of the end node.
+     * @param limit The longest path to look for.
+     * @return The length of the shortest path, or infinity if there is none within the limit.
+     */
+    public double run(int source, int target, double limit) {
+        this.source = source;
+        this.target = target;
+        meeting = UpwardGraph.NONE;
+        distance = Double.POSITIVE_INFINITY;
+        backward.clear();
+
+        search(graph, forward, source, true, limit);
+        backward.relax(target, 0, -1);
+        while (!backward.isEmpty() && backward.minDistance() < distance
+                && backward.minDistance() <= limit) {
+            int v = backward.removeMin();
+            double d = backward.distTo(v);
+            double through = forward.distTo(v) + d;
+            if (through < distance) {
+                distance = through;
+                meeting = v;
+            }
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e += 1) {
+                double weight = graph.downWeight(e);
+                if (weight != Double.POSITIVE_INFINITY) {
+                    backward.relax(graph.head(e), d + weight, e);
+                }
+            }
+        }
+        if (distance > limit) {
+            meeting = UpwardGraph.NONE;
+            distance = Double.POSITIVE_INFINITY;
+        }
+        return distance;
+    }
+
+    /**
+     * Runs a complete search from the start node over edges to higher-ranked nodes, clearing
+     * the workspace first. A forward search follows up weights and finds distances from the
+     * start; a backward search follows down weights and finds distances to the start.
+     * @param graph The graph to search.
+     * @param workspace The workspace to search in.
+     * @param start The rank of the start node.
+     * @param forward Whether to search forward or backward.
+     */
+    public static void search(UpwardGraph graph, SearchWorkspace workspace, int start, boolean forward) {
+        search(graph, workspace, start, forward, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs a search from the start node over edges to higher-ranked nodes that settles only the
+     * nodes within the limit, clearing the workspace first. Nodes beyond it may be reached, but
+     * with distances that are only upper bounds.
+     * @param graph The graph to search.
+     * @param workspace The workspace to search in.
+     * @param start The rank of the start node.
+     * @param forward Whether to search forward or backward.
+     * @param limit The distance beyond which nodes are not settled.
+     */
+    public static void search(UpwardGraph graph, SearchWorkspace workspace, int start, boolean forward,
+                              double limit) {
+        workspace.clear();
+        workspace.relax(start, 0, -1);
+        while (!workspace.isEmpty() && workspace.minDistance() <= limit) {
+            int v = workspace.removeMin();
+            double d = workspace.distTo(v);
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e += 1) {
+                double weight = forward ? graph.upWeight(e) : graph.downWeight(e);
+                if (weight != Double.POSITIVE_INFINITY) {
+                    workspace.relax(graph.head(e), d + weight, e);
+                }
+            }
+        }
+    }
+
+    /** Returns the length of the last computed path, or infinity if there was none. */
+    public double distance() {
+        return distance;
+    }
+
+    /** Returns the number of nodes settled by both searches of the last run. */
+    public int numSettled() {
+        return forward.numSettled() + backward.numSettled();
+    }
+
+    /** Returns the number of nodes settled by the forward search of the last run. */
+    public int numForwardSettled() {
+        return forward.numSettled();
+    }
+
+    /** Returns the number of nodes settled by the backward search of the last run. */
+    public int numBackwardSettled() {
+        return backward.numSettled();
+    }
+
+    /** Returns the number of edges scanned from settled nodes by both searches of the last run. */
+    public long numEdgesRelaxed() {
+        long relaxed = 0;
+        for (int i = 0; i < forward.numSettled(); i += 1) {
+            relaxed += graph.endEdge(forward.settled(i)) - graph.firstEdge(forward.settled(i));
+        }
+        for (int i = 0; i < backward.numSettled(); i += 1) {
+            relaxed += graph.endEdge(backward.settled(i)) - graph.firstEdge(backward.settled(i));
+        }
+        return relaxed;
+    }
+
+    /** Returns the ids of the nodes on the last computed path, or an empty list if there was none. */
+    public List<Long> path() {
+        if (meeting == UpwardGraph.NONE) {
+            return new ArrayList<>();
+        }
+        // The forward half is found from the meeting node back, so its edges are unpacked in reverse
+        int count = 0;
+        for (int v = meeting; v != source; v = graph.tail(forwardEdges[count - 1])) {
+            if (count == forwardEdges.length) {
+                forwardEdges = Arrays.copyOf(forwardEdges, 2 * count);
+            }
+            forwardEdges[count] = forward.edgeTo(v);
+            count += 1;
+        }
+        unpacker.start(source);
+        for (int i = count - 1; i >= 0; i -= 1) {
+            unpacker.append(forwardEdges[i], true);
+        }
+        // The backward half leads from the meeting node down to the target in travel order
+        for (int v = meeting; v != target; v = graph.tail(backward.edgeTo(v))) {
+            unpacker.append(backward.edgeTo(v), false);
+        }
+        return unpacker.ids();
+    }
+}
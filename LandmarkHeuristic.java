@@ -0,0 +1,174 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ALT (A*, landmarks and triangle inequality) heuristic. The shortest distances from and to
+ * a few landmark nodes are precomputed; by the triangle inequality, the distance from any node
+ * V to a goal T is at least d(L, T) - d(L, V) and at least d(V, L) - d(T, L) for every landmark
+ * L. Unlike bounds from the great-circle distance, these bounds account for the detours that
+ * water and missing roads force on actual routes.
+ *
+ * Landmarks are chosen by farthest-point selection: each one is the node farthest from the
+ * landmarks before it, which spreads them around the edge of the map where they give the
+ * tightest bounds. The distances are kept in flat arrays holding the distances of each node to
+ * all landmarks next to each other.
+ */
+public class LandmarkHeuristic implements Heuristic {
+    private final StreetMapGraph graph;
+    private final Map<Long, Integer> indices;
+    private final long[] landmarks;
+    /** The distance from landmark l to node v at [v * landmarks.length + l]. */
+    private final double[] fromLandmark;
+    /** The distance from node v to landmark l at [v * landmarks.length + l]. */
+    private final double[] toLandmark;
+
+    /**
+     * Chooses the landmarks and computes their distances to every node on a road.
+     * @param graph The graph to estimate distances on. Its edges must not change afterwards.
+     * @param numLandmarks The number of landmarks to choose.
+     */
+    public LandmarkHeuristic(StreetMapGraph graph, int numLandmarks) {
+        this.graph = graph;
+        List<Long> ids = new ArrayList<>();
+        for (long id : graph.vertices()) {
+            if (graph.isNavigable((Node) graph.location(id))) {
+                ids.add(id);
+            }
+        }
+        int n = ids.size();
+        indices = new HashMap<>();
+        for (int v = 0; v < n; v += 1) {
+            indices.put(ids.get(v), v);
+        }
+
+        // Copy the edges out of and into each node into compressed sparse row form
+        int[] outFirst = new int[n + 1];
+        int[] inFirst = new int[n + 1];
+        List<WeightedEdge<Long>> edges = new ArrayList<>();
+        for (int v = 0; v < n; v += 1) {
+            for (WeightedEdge<Long> e : graph.neighbors(ids.get(v))) {
+                Integer w = indices.get(e.to());
+                if (w != null) {
+                    edges.add(e);
+                    outFirst[v + 1] += 1;
+                    inFirst[w + 1] += 1;
+                }
+            }
+        }
+        for (int v = 0; v < n; v += 1) {
+            outFirst[v + 1] += outFirst[v];
+            inFirst[v + 1] += inFirst[v];
+        }
+        int[] outHeads = new int[edges.size()];
+        double[] outWeights = new double[edges.size()];
+        int[] inHeads = new int[edges.size()];
+        double[] inWeights = new double[edges.size()];
+        int[] inNext = Arrays.copyOf(inFirst, n);
+        for (int i = 0; i < edges.size(); i += 1) {
+            WeightedEdge<Long> e = edges.get(i);
+            int v = indices.get(e.from());
+            int w = indices.get(e.to());
+            outHeads[i] = w;
+            outWeights[i] = e.weight();
+            inHeads[inNext[w]] = v;
+            inWeights[inNext[w]] = e.weight();
+            inNext[w] += 1;
+        }
+
+        int k = n == 0 ? 0 : Math.min(numLandmarks, n);
+        landmarks = new long[k];
+        fromLandmark = new double[n * k];
+        toLandmark = new double[n * k];
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(n);
+        // Start from the node farthest from an arbitrary node rather than the arbitrary node
+        int next = k == 0 ? 0 : farthest(search(outFirst, outHeads, outWeights, 0, workspace));
+        double[] minDistance = new double[n];
+        Arrays.fill(minDistance, Double.POSITIVE_INFINITY);
+        for (int l = 0; l < k; l += 1) {
+            landmarks[l] = ids.get(next);
+            double[] from = search(outFirst, outHeads, outWeights, next, workspace);
+            double[] to = search(inFirst, inHeads, inWeights, next, workspace);
+            for (int v = 0; v < n; v += 1) {
+                fromLandmark[v * k + l] = from[v];
+                toLandmark[v * k + l] = to[v];
+                minDistance[v] = Math.min(minDistance[v], from[v]);
+            }
+            next = farthest(minDistance);
+        }
+    }
+
+    @Override
+    public double estimate(long s, long goal) {
+        Integer v = indices.get(s);
+        Integer t = indices.get(goal);
+        if (v == null || t == null) {
+            return graph.greatCircleEstimate(s, goal);
+        }
+        int k = landmarks.length;
+        int vi = v * k;
+        int ti = t * k;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int l = 0; l < k; l += 1) {
+            // A landmark that reaches neither node gives NaN and no bound. One that reaches
+            // only the start gives infinity, which is exact since the goal is then unreachable.
+            double forward = fromLandmark[ti + l] - fromLandmark[vi + l];
+            double backward = toLandmark[vi + l] - toLandmark[ti + l];
+            if (forward == forward && forward > best) {
+                best = forward;
+            }
+            if (backward == backward && backward > best) {
+                best = backward;
+            }
+        }
+        if (best == Double.NEGATIVE_INFINITY) {
+            return graph.greatCircleEstimate(s, goal);
+        }
+        return Math.max(best, 0);
+    }
+
+    /** Returns the ids of the landmarks in the order they were chosen. */
+    public long[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Runs a complete Dijkstra search over the given edges.
+     * @return The distance to every node, or infinity if it is unreachable.
+     */
+    private static double[] search(int[] first, int[] heads, double[] weights, int source,
+                                   SearchWorkspace workspace) {
+        double[] distTo = new double[first.length - 1];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        workspace.clear();
+        workspace.relax(source, 0, -1);
+        while (!workspace.isEmpty()) {
+            int v = workspace.removeMin();
+            double d = workspace.distTo(v);
+            distTo[v] = d;
+            for (int e = first[v]; e < first[v + 1]; e += 1) {
+                workspace.relax(heads[e], d + weights[e], e);
+            }
+        }
+        return distTo;
+    }
+
+    /** Returns the node with the largest finite distance, so that other components are skipped. */
+    private static int farthest(double[] distances) {
+        int farthest = 0;
+        double max = -1;
+        for (int v = 0; v < distances.length; v += 1) {
+            if (distances[v] != Double.POSITIVE_INFINITY && distances[v] > max) {
+                farthest = v;
+                max = distances[v];
+            }
+        }
+        return farthest;
+    }
+}
@@ -12,15 +12,20 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.GZIPInputStream;
 
 import static huskymaps.Constants.HEROKU_DEPLOYMENT;
@@ -43,15 +48,48 @@ import static huskymaps.Constants.PLACES_PATH;
  */
 class OSMGraphHandler extends DefaultHandler {
 
-    /** Only allow for non-service roads; this prevents going on pedestrian streets. */
-    private static final Set<String> ALLOWED_HIGHWAY_TYPES = Set.of(
-            "motorway", "trunk", "primary", "secondary", "tertiary", "unclassified", "residential",
-            "living_street", "motorway_link", "trunk_link", "primary_link", "secondary_link",
-            "tertiary_link"
-    );
+    /** Kilometers per hour in a mile per hour, for maxspeed tags without units. */
+    private static final double KPH_PER_MPH = 1.609344;
+    /** The access keys that apply to cars, from the most general to the most specific. */
+    private static final List<String> ACCESS_KEYS = List.of("access", "vehicle", "motor_vehicle", "motorcar");
+    private static final Set<String> DENIED_ACCESS = Set.of("no", "private", "agricultural", "forestry", "delivery");
+    private static final Set<String> ALLOWED_ACCESS = Set.of("yes", "permissive", "designated", "destination");
+    /** The directions a way may be traveled in, relative to the order of its nodes. */
+    private static final int BOTH = 0;
+    private static final int FORWARD = 1;
+    private static final int BACKWARD = -1;
+    private static final int CLOSED = 2;
+    /** The restriction keys that apply to cars, from the most general to the most specific. */
+    private static final List<String> RESTRICTION_KEYS = List.of("restriction", "restriction:motorcar");
+
     private String activeState;
-    private boolean validWay;
+    /**
+     * The class of the current way. Only non-service roads have a class; this prevents going on
+     * pedestrian streets.
+     */
+    private RoadClass roadClass;
+    private int maxSpeed;
+    /** The value of the oneway tag of the current way, or null if it has none. */
+    private String oneway;
+    private boolean roundabout;
+    /** Whether cars may use the current way, from the most specific access tag seen so far. */
+    private boolean accessible;
+    private int accessLevel;
     private String wayName;
+    private long wayId;
+    /**
+     * The first two and last two nodes of every way with edges, by way id, for resolving the
+     * members of restrictions, which must end at their via node.
+     */
+    private final Map<Long, long[]> wayEnds;
+    /** The value of the most specific restriction tag of the current relation, or null. */
+    private String restriction;
+    private int restrictionLevel;
+    private boolean restrictionExempt;
+    private final List<Long> fromWays;
+    private final List<Long> toWays;
+    private Long viaNode;
+    private boolean viaWay;
     private final StreetMapGraph g;
     private Node.Builder nodeBuilder;
     private Queue<Long> nodePath;
@@ -59,8 +97,22 @@ class OSMGraphHandler extends DefaultHandler {
 
     private OSMGraphHandler(StreetMapGraph g) {
         this.activeState = "";
-        this.validWay = false;
+        this.roadClass = null;
+        this.maxSpeed = 0;
+        this.oneway = null;
+        this.roundabout = false;
+        this.accessible = true;
+        this.accessLevel = -1;
         this.wayName = "";
+        this.wayId = 0;
+        this.wayEnds = new HashMap<>();
+        this.restriction = null;
+        this.restrictionLevel = -1;
+        this.restrictionExempt = false;
+        this.fromWays = new ArrayList<>();
+        this.toWays = new ArrayList<>();
+        this.viaNode = null;
+        this.viaWay = false;
         this.g = g;
         this.nodeBuilder = g.nodeBuilder();
         this.nodePath = new ArrayDeque<>();
@@ -93,8 +145,13 @@ class OSMGraphHandler extends DefaultHandler {
                 .replace('’', '\'');
     }
 
-    /** Initialize the graph from an OSM file. Assumes file is correctly formatted. */
-    public static void initializeFromXML(StreetMapGraph g, String filename) {
+    /**
+     * Initialize the graph from an OSM file. Assumes file is correctly formatted.
+     * @return The CRC-32 checksum of the bytes read, in hexadecimal, which identifies the data
+     * whether it was read from a file or from the classpath.
+     */
+    public static String initializeFromXML(StreetMapGraph g, String filename) {
+        CRC32 checksum = new CRC32();
         try {
             SAXParserFactory factory = SAXParserFactory.newInstance();
             SAXParser saxParser = factory.newSAXParser();
@@ -106,10 +163,23 @@ class OSMGraphHandler extends DefaultHandler {
             } else {
                 fileStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename);
             }
-            saxParser.parse(new GZIPInputStream(fileStream), handler);
+            try (CheckedInputStream checked = new CheckedInputStream(fileStream, checksum)) {
+                // The parser closes its input at the end of the document, which may come before
+                // the end of the file, so it is kept open to checksum the rest
+                saxParser.parse(new GZIPInputStream(new FilterInputStream(checked) {
+                    @Override
+                    public void close() {
+                    }
+                }), handler);
+                byte[] rest = new byte[8192];
+                while (checked.read(rest) != -1) {
+                    continue;
+                }
+            }
         } catch (ParserConfigurationException | SAXException | IOException e) {
             e.printStackTrace();
         }
+        return Long.toHexString(checksum.getValue());
     }
 
     /**
@@ -137,6 +207,7 @@ class OSMGraphHandler extends DefaultHandler {
         } else if (qName.equals("way")) {
             /* We encountered a new <way...> tag. */
             activeState = "way";
+            wayId = Long.parseLong(attributes.getValue("id"));
         } else if (activeState.equals("way") && qName.equals("nd")) {
             /* While looking at a way, we found a <nd...> tag. */
             nodePath.add(Long.parseLong(attributes.getValue("ref")));
@@ -145,10 +216,49 @@ class OSMGraphHandler extends DefaultHandler {
             String k = attributes.getValue("k");
             String v = attributes.getValue("v");
             if (k.equals("highway")) {
-                validWay = ALLOWED_HIGHWAY_TYPES.contains(v);
+                roadClass = RoadClass.fromTag(v);
+            } else if (k.equals("maxspeed")) {
+                maxSpeed = parseMaxSpeed(v);
+            } else if (k.equals("oneway")) {
+                oneway = v;
+            } else if (k.equals("junction")) {
+                roundabout = v.equals("roundabout");
+            } else if (ACCESS_KEYS.contains(k) && ACCESS_KEYS.indexOf(k) >= accessLevel) {
+                // More specific keys override more general ones, such as motorcar=yes on access=no
+                if (DENIED_ACCESS.contains(v) || ALLOWED_ACCESS.contains(v)) {
+                    accessible = ALLOWED_ACCESS.contains(v);
+                    accessLevel = ACCESS_KEYS.indexOf(k);
+                }
             } else if (k.equals("name")) {
                 wayName = v;
             }
+        } else if (qName.equals("relation")) {
+            /* We encountered a new <relation...> tag. */
+            activeState = "relation";
+        } else if (activeState.equals("relation") && qName.equals("member")) {
+            /* While looking at a relation, we found a <member...> tag. */
+            String type = attributes.getValue("type");
+            String role = attributes.getValue("role");
+            long ref = Long.parseLong(attributes.getValue("ref"));
+            if (type.equals("way") && role.equals("from")) {
+                fromWays.add(ref);
+            } else if (type.equals("way") && role.equals("to")) {
+                toWays.add(ref);
+            } else if (type.equals("node") && role.equals("via")) {
+                viaNode = ref;
+            } else if (type.equals("way") && role.equals("via")) {
+                viaWay = true;
+            }
+        } else if (activeState.equals("relation") && qName.equals("tag")) {
+            /* While looking at a relation, we found a <tag...> tag. */
+            String k = attributes.getValue("k");
+            String v = attributes.getValue("v");
+            if (RESTRICTION_KEYS.indexOf(k) > restrictionLevel) {
+                restriction = v;
+                restrictionLevel = RESTRICTION_KEYS.indexOf(k);
+            } else if (k.equals("except")) {
+                restrictionExempt = List.of(v.split(";")).contains("motorcar");
+            }
         } else if (activeState.equals("node") && qName.equals("tag") && attributes.getValue("k").equals("name")) {
             String name = normalize(attributes.getValue("v"));
             nodeBuilder.setName(name).setImportance(places.getOrDefault(name, 0));
@@ -169,12 +279,23 @@ class OSMGraphHandler extends DefaultHandler {
     public void endElement(String uri, String localName, String qName) throws SAXException {
         if (qName.equals("way")) {
             /* We are done looking at a way. (We finished looking at the nodes, speeds, etc...)*/
-            if (validWay && !nodePath.isEmpty()) {
+            int direction = direction();
+            if (roadClass != null && accessible && direction != CLOSED && !nodePath.isEmpty()) {
+                long[] nodes = nodePath.stream().mapToLong(Long::longValue).toArray();
+                if (nodes.length > 1) {
+                    int last = nodes.length - 1;
+                    wayEnds.put(wayId, new long[] {nodes[0], nodes[1], nodes[last - 1], nodes[last]});
+                }
+                int attributes = RoadEdge.pack(roadClass, maxSpeed, direction != BOTH);
                 long from = nodePath.remove();
                 while (!nodePath.isEmpty()) {
                     long to = nodePath.remove();
-                    g.addWeightedEdge(from, to, wayName);
-                    g.addWeightedEdge(to, from, wayName);
+                    if (direction != BACKWARD) {
+                        g.addRoadEdge(from, to, wayName, attributes);
+                    }
+                    if (direction != FORWARD) {
+                        g.addRoadEdge(to, from, wayName, attributes);
+                    }
                     from = to;
                 }
             }
@@ -182,12 +303,111 @@ class OSMGraphHandler extends DefaultHandler {
         } else if (qName.equals("node")) {
             g.addNode(nodeBuilder.createNode());
             clearStates();
+        } else if (qName.equals("relation")) {
+            /* We are done looking at a relation. Only restrictions with a via node are supported. */
+            if (restriction != null && !restrictionExempt && viaNode != null && !viaWay
+                    && (restriction.startsWith("no_") || restriction.startsWith("only_"))) {
+                addRestriction(restriction.startsWith("only_"));
+            }
+            clearStates();
+        }
+    }
+
+    /**
+     * Adds the turns of the current restriction relation to the graph. The turns come from the
+     * neighbors of the via node along the from way, and go to its neighbors along the to way.
+     * @param only Whether the restriction is mandatory rather than prohibitive.
+     */
+    private void addRestriction(boolean only) {
+        for (long fromWay : fromWays) {
+            for (long toWay : toWays) {
+                for (long from : wayNeighbors(fromWay, viaNode)) {
+                    for (long to : wayNeighbors(toWay, viaNode)) {
+                        g.addTurnRestriction(from, viaNode, to, only);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the node next to the given end of the way, or none if the way does not start or end there. */
+    private List<Long> wayNeighbors(long way, long node) {
+        List<Long> result = new ArrayList<>();
+        long[] ends = wayEnds.get(way);
+        if (ends != null && ends[0] == node) {
+            result.add(ends[1]);
+        }
+        if (ends != null && ends[3] == node) {
+            result.add(ends[2]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the direction the current way may be traveled in, or CLOSED if it has no fixed
+     * direction, such as when it changes by the time of day. Motorways and roundabouts are
+     * one-way unless tagged otherwise.
+     */
+    private int direction() {
+        if (oneway == null) {
+            boolean impliedOneway = roundabout || roadClass == RoadClass.MOTORWAY
+                    || roadClass == RoadClass.MOTORWAY_LINK;
+            return impliedOneway ? FORWARD : BOTH;
+        }
+        switch (oneway) {
+            case "yes":
+            case "true":
+            case "1":
+                return FORWARD;
+            case "-1":
+            case "reverse":
+                return BACKWARD;
+            case "no":
+            case "false":
+            case "0":
+                return BOTH;
+            default:
+                return CLOSED;
+        }
+    }
+
+    /**
+     * Returns the speed limit in miles per hour from the value of a maxspeed tag, such as
+     * "25 mph" or "50" in kilometers per hour, or 0 if it has none, such as "signals".
+     * @param value The value of the tag. Only the first of several limits is used.
+     */
+    private static int parseMaxSpeed(String value) {
+        int end = 0;
+        value = value.strip();
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+            end += 1;
+        }
+        if (end == 0 || end > 3) {
+            return 0;
+        }
+        int speed = Integer.parseInt(value.substring(0, end));
+        if (value.contains("mph")) {
+            return speed;
         }
+        return (int) Math.round(speed / KPH_PER_MPH);
     }
 
     private void clearStates() {
         activeState = "";
-        validWay = false;
+        roadClass = null;
+        maxSpeed = 0;
+        oneway = null;
+        roundabout = false;
+        accessible = true;
+        accessLevel = -1;
+        wayId = 0;
+        restriction = null;
+        restrictionLevel = -1;
+        restrictionExempt = false;
+        fromWays.clear();
+        toWays.clear();
+        viaNode = null;
+        viaWay = false;
         nodePath.clear();
         nodeBuilder = g.nodeBuilder();
         wayName = "";
@@ -0,0 +1,50 @@
+package huskymaps;
+
+import java.util.Arrays;
+
+/**
+ * Computes the shortest distances from one node to every node on an UpwardGraph in the style of
+ * PHAST. A complete upward search from the source finds the distance to every node above it;
+ * then a single sweep over all nodes in descending rank pulls each node's distance down from
+ * its higher-ranked neighbors, which the sweep has already finished.
+ *
+ * The sweep touches every node and edge once, in the order they are stored, so it costs about
+ * as much as reading the graph rather than as much as a Dijkstra search over it.
+ *
+ * Turn restrictions are ignored, since the sweep keeps only a distance for each node and not
+ * the edge it was reached by, so a distance may be shorter than any route that obeys them.
+ */
+class OneToAll {
+
+    /**
+     * Returns the shortest distance from the source to every node.
+     * @param graph The graph to search.
+     * @param source The rank of the source node.
+     * @return The distance to each node indexed by rank, or infinity for unreachable nodes.
+     */
+    static double[] distancesFrom(UpwardGraph graph, int source) {
+        double[] distTo = new double[graph.size()];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        if (source == UpwardGraph.NONE) {
+            return distTo;
+        }
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(graph.size());
+        HierarchyQuery.search(graph, workspace, source, true);
+        for (int i = 0; i < workspace.numSettled(); i += 1) {
+            int v = workspace.settled(i);
+            distTo[v] = workspace.distTo(v);
+        }
+
+        for (int v = graph.size() - 1; v >= 0; v -= 1) {
+            double best = distTo[v];
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e += 1) {
+                double thisDistance = distTo[graph.head(e)] + graph.downWeight(e);
+                if (thisDistance < best) {
+                    best = thisDistance;
+                }
+            }
+            distTo[v] = best;
+        }
+        return distTo;
+    }
+}
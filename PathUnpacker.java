@@ -0,0 +1,132 @@
+package huskymaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static huskymaps.Constants.UNPACK_CACHE_NODES;
+
+/**
+ * Unpacks paths over an UpwardGraph into the ranks of the nodes they visit, without recursion
+ * or edge objects. Each shortcut is replaced by its two halves through the node it bypasses,
+ * found from the flat via arrays of the graph, using an explicit stack. Nodes are written into
+ * one output buffer that is reused by the next path, so a warm unpacker allocates only the
+ * list of ids it returns.
+ *
+ * Shortcuts that bypass one of the UNPACK_CACHE_NODES highest-ranked nodes are used by many
+ * long routes, so the graph keeps their nodes once they have been unpacked, up to
+ * UNPACK_CACHE_CAPACITY nodes in all. An unpacker holds its buffers between paths, so each
+ * thread should keep its own.
+ */
+public class PathUnpacker {
+    private final UpwardGraph graph;
+    private int[] path = new int[64];
+    private int size;
+    /**
+     * Keys of edges left to unpack, with the top unpacked first. A cacheable shortcut is
+     * followed by the complement of the path size before it, which is negative, to mark where
+     * its nodes begin once its halves are done.
+     */
+    private int[] stack = new int[64];
+    private int top;
+
+    public PathUnpacker(UpwardGraph graph) {
+        this.graph = graph;
+    }
+
+    /** Returns the graph this unpacker unpacks paths over. */
+    public UpwardGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Starts a new path at the given node, forgetting the last one.
+     * @param v The rank of the first node.
+     */
+    public void start(int v) {
+        size = 0;
+        add(v);
+    }
+
+    /**
+     * Extends the path along the given edge, adding every node it visits after its first.
+     * @param e The edge, which must start at the last node of the path.
+     * @param up Whether the edge is traveled from its tail to its head rather than back.
+     */
+    public void append(int e, boolean up) {
+        int cacheFrom = graph.size() - UNPACK_CACHE_NODES;
+        push(key(e, up));
+        while (top > 0) {
+            int key = stack[--top];
+            if (key < 0) {
+                // The halves of a cacheable shortcut are done, so its nodes begin at the mark
+                int mark = ~key;
+                graph.cacheUnpacked(stack[--top], Arrays.copyOfRange(path, mark, size));
+                continue;
+            }
+            int edge = key >>> 1;
+            boolean upward = (key & 1) == 1;
+            int via = upward ? graph.upVia(edge) : graph.downVia(edge);
+            if (via == UpwardGraph.NONE) {
+                add(upward ? graph.head(edge) : graph.tail(edge));
+                continue;
+            }
+            if (via >= cacheFrom) {
+                int[] cached = graph.unpacked(key);
+                if (cached != null) {
+                    for (int v : cached) {
+                        add(v);
+                    }
+                    continue;
+                }
+                push(key);
+                push(~size);
+            }
+            int from = upward ? graph.tail(edge) : graph.head(edge);
+            int to = upward ? graph.head(edge) : graph.tail(edge);
+            // Down from the start to the bypassed node, then up to the end
+            push(key(graph.edge(via, to), true));
+            push(key(graph.edge(via, from), false));
+        }
+    }
+
+    /** Returns the number of nodes on the path. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the rank of the i-th node on the path. */
+    public int get(int i) {
+        return path[i];
+    }
+
+    /** Returns the ids of the nodes on the path in order. */
+    public List<Long> ids() {
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i += 1) {
+            ids.add(graph.id(path[i]));
+        }
+        return ids;
+    }
+
+    /** Returns the key of traveling the given edge in the given direction. */
+    private static int key(int e, boolean up) {
+        return e << 1 | (up ? 1 : 0);
+    }
+
+    private void add(int v) {
+        if (size == path.length) {
+            path = Arrays.copyOf(path, 2 * size);
+        }
+        path[size] = v;
+        size += 1;
+    }
+
+    private void push(int key) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * top);
+        }
+        stack[top] = key;
+        top += 1;
+    }
+}
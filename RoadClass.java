@@ -0,0 +1,61 @@
+package huskymaps;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The kinds of road that are routed on, from the OSM highway tag, along with the speed assumed
+ * for roads that have no maxspeed tag. Edges store the ordinal in a byte.
+ */
+public enum RoadClass {
+    MOTORWAY("motorway", 60),
+    TRUNK("trunk", 50),
+    PRIMARY("primary", 40),
+    SECONDARY("secondary", 35),
+    TERTIARY("tertiary", 30),
+    UNCLASSIFIED("unclassified", 25),
+    RESIDENTIAL("residential", 25),
+    LIVING_STREET("living_street", 10),
+    MOTORWAY_LINK("motorway_link", 45),
+    TRUNK_LINK("trunk_link", 40),
+    PRIMARY_LINK("primary_link", 30),
+    SECONDARY_LINK("secondary_link", 30),
+    TERTIARY_LINK("tertiary_link", 25);
+
+    private static final RoadClass[] VALUES = values();
+    private static final Map<String, RoadClass> BY_TAG = new HashMap<>();
+
+    static {
+        for (RoadClass roadClass : VALUES) {
+            BY_TAG.put(roadClass.tag, roadClass);
+        }
+    }
+
+    private final String tag;
+    private final int defaultSpeed;
+
+    RoadClass(String tag, int defaultSpeed) {
+        this.tag = tag;
+        this.defaultSpeed = defaultSpeed;
+    }
+
+    /** Returns the value of the highway tag for this class. */
+    public String tag() {
+        return tag;
+    }
+
+    /** Returns the speed in miles per hour assumed when a road has no maxspeed tag. */
+    public int defaultSpeed() {
+        return defaultSpeed;
+    }
+
+    /** Returns the class with the given highway tag, or null if roads with it are not routed on. */
+    public static RoadClass fromTag(String tag) {
+        return BY_TAG.get(tag);
+    }
+
+    /** Returns the class with the given ordinal. */
+    public static RoadClass fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
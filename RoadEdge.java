@@ -0,0 +1,91 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+/**
+ * An edge along a road, carrying the road class and speed limit of its way packed into a single
+ * int so that they cost no more than one primitive per edge. The low byte holds the ordinal of
+ * the RoadClass and the next byte the maxspeed in miles per hour, or 0 if the way had none. The
+ * bit above them is set on edges of one-way roads, which have no edge in the other direction.
+ */
+public class RoadEdge extends WeightedEdge<Long> {
+    private static final int CLASS_MASK = 0xFF;
+    private static final int SPEED_SHIFT = 8;
+    private static final int SPEED_MASK = 0xFF;
+    private static final int ONEWAY = 1 << 16;
+
+    private final int attributes;
+
+    public RoadEdge(long from, long to, double weight, String name, int attributes) {
+        super(from, to, weight, name);
+        this.attributes = attributes;
+    }
+
+    /**
+     * Packs road attributes into an int.
+     * @param roadClass The class of the road.
+     * @param maxSpeed The speed limit in miles per hour, or 0 if unknown. Limits above 255 are
+     *                 stored as 255.
+     * @return The packed attributes.
+     */
+    public static int pack(RoadClass roadClass, int maxSpeed) {
+        return pack(roadClass, maxSpeed, false);
+    }
+
+    /**
+     * Packs road attributes into an int.
+     * @param roadClass The class of the road.
+     * @param maxSpeed The speed limit in miles per hour, or 0 if unknown. Limits above 255 are
+     *                 stored as 255.
+     * @param oneway Whether the road may only be traveled in one direction.
+     * @return The packed attributes.
+     */
+    public static int pack(RoadClass roadClass, int maxSpeed, boolean oneway) {
+        return roadClass.ordinal() | (Math.max(0, Math.min(maxSpeed, SPEED_MASK)) << SPEED_SHIFT)
+                | (oneway ? ONEWAY : 0);
+    }
+
+    /** Returns the class of the road in the given packed attributes. */
+    public static RoadClass roadClass(int attributes) {
+        return RoadClass.fromOrdinal(attributes & CLASS_MASK);
+    }
+
+    /**
+     * Returns the speed in miles per hour to travel at on a road with the given packed
+     * attributes: the speed limit if known, or else the default for the class of road.
+     */
+    public static int speed(int attributes) {
+        int maxSpeed = (attributes >>> SPEED_SHIFT) & SPEED_MASK;
+        return maxSpeed != 0 ? maxSpeed : roadClass(attributes).defaultSpeed();
+    }
+
+    /** Returns whether the given packed attributes are those of a one-way road. */
+    public static boolean oneway(int attributes) {
+        return (attributes & ONEWAY) != 0;
+    }
+
+    /** Returns the packed road attributes of this edge. */
+    public int attributes() {
+        return attributes;
+    }
+
+    /** Returns the class of the road this edge is on. */
+    public RoadClass roadClass() {
+        return roadClass(attributes);
+    }
+
+    /** Returns the speed in miles per hour to travel this edge at. */
+    public int speed() {
+        return speed(attributes);
+    }
+
+    /** Returns whether this edge is on a one-way road. */
+    public boolean oneway() {
+        return oneway(attributes);
+    }
+
+    @Override
+    public RoadEdge flip() {
+        return new RoadEdge(to(), from(), weight(), name(), attributes);
+    }
+}
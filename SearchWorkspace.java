@@ -0,0 +1,189 @@
+package huskymaps;
+
+import java.util.Arrays;
+
+/**
+ * The distances, parent edges and priority queue of one Dijkstra search over an UpwardGraph,
+ * kept in arrays indexed by rank so that they can be reused across searches.
+ *
+ * Clearing the workspace only advances a stamp: a node counts as reached only if it was reached
+ * since the last clear, so the arrays never need to be refilled between searches.
+ */
+public class SearchWorkspace {
+    /** Workspaces shared by the searches of each thread that run one at a time. */
+    private static final ThreadLocal<SearchWorkspace> SHARED = new ThreadLocal<>();
+
+    private final double[] distTo;
+    private final int[] edgeTo;
+    private final int[] stamps;
+    private final int[] heap;
+    private final int[] positions;
+    private final int[] settled;
+    private int stamp;
+    private int heapSize;
+    private int numSettled;
+
+    /**
+     * Creates a workspace for searches over graphs with at most the given number of nodes.
+     * @param size The number of nodes.
+     */
+    public SearchWorkspace(int size) {
+        distTo = new double[size];
+        edgeTo = new int[size];
+        stamps = new int[size];
+        heap = new int[size];
+        positions = new int[size];
+        settled = new int[size];
+        stamp = 1;
+    }
+
+    /**
+     * Returns the shared workspace of the current thread, replacing it if it is too small. The
+     * workspace is reused by the next call on the same thread, so it must not be held across
+     * searches.
+     * @param size The number of nodes.
+     * @return The workspace.
+     */
+    public static SearchWorkspace forCurrentThread(int size) {
+        SearchWorkspace workspace = SHARED.get();
+        if (workspace == null || workspace.capacity() < size) {
+            workspace = new SearchWorkspace(size);
+            SHARED.set(workspace);
+        }
+        return workspace;
+    }
+
+    /** Returns the number of nodes this workspace can search. */
+    public int capacity() {
+        return stamps.length;
+    }
+
+    /** Forgets every reached node so that a new search can start. */
+    public void clear() {
+        stamp += 1;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        heapSize = 0;
+        numSettled = 0;
+    }
+
+    /** Returns true if and only if the node was reached since the last clear. */
+    public boolean reached(int v) {
+        return stamps[v] == stamp;
+    }
+
+    /** Returns the shortest known distance to the node, or infinity if it was not reached. */
+    public double distTo(int v) {
+        return reached(v) ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the edge the node was last reached by, or -1 for the source. */
+    public int edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    /**
+     * Reaches the node with the given distance, unless it was already reached at least as
+     * cheaply or has been settled.
+     * @param v The node.
+     * @param distance The distance to the node.
+     * @param edge The edge the node is reached by, or -1 for the source.
+     * @return true if and only if the distance of the node improved.
+     */
+    public boolean relax(int v, double distance, int edge) {
+        if (!reached(v)) {
+            stamps[v] = stamp;
+            distTo[v] = distance;
+            edgeTo[v] = edge;
+            positions[v] = heapSize;
+            heap[heapSize] = v;
+            heapSize += 1;
+            siftUp(heapSize - 1);
+            return true;
+        }
+        if (distance < distTo[v] && positions[v] >= 0) {
+            distTo[v] = distance;
+            edgeTo[v] = edge;
+            siftUp(positions[v]);
+            return true;
+        }
+        return false;
+    }
+
+    /** Returns true if and only if no reached node is waiting to be settled. */
+    public boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    /** Returns the distance of the next node to be settled. */
+    public double minDistance() {
+        return distTo[heap[0]];
+    }
+
+    /** Settles and returns the unsettled node with the smallest distance. */
+    public int removeMin() {
+        int v = heap[0];
+        heapSize -= 1;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        positions[v] = -1;
+        settled[numSettled] = v;
+        numSettled += 1;
+        return v;
+    }
+
+    /** Returns the number of nodes settled since the last clear. */
+    public int numSettled() {
+        return numSettled;
+    }
+
+    /** Returns the i-th node settled since the last clear. */
+    public int settled(int i) {
+        return settled[i];
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        double d = distTo[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (distTo[p] <= d) {
+                break;
+            }
+            heap[i] = p;
+            positions[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        positions[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        double d = distTo[v];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && distTo[heap[child + 1]] < distTo[heap[child]]) {
+                child += 1;
+            }
+            int c = heap[child];
+            if (distTo[c] >= d) {
+                break;
+            }
+            heap[i] = c;
+            positions[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        positions[v] = i;
+    }
+}
@@ -11,16 +11,42 @@ import pointset.Point;
 
 import java.util.*;
 
+import static huskymaps.Constants.LEFT_TURN_SECONDS;
+import static huskymaps.Constants.NUM_LANDMARKS;
+import static huskymaps.Constants.RIGHT_TURN_SECONDS;
+import static huskymaps.Constants.STRAIGHT_TURN_DEGREES;
+import static huskymaps.Constants.TURN_PENALTIES;
+import static huskymaps.Constants.U_TURN_DEGREES;
+import static huskymaps.Constants.U_TURN_SECONDS;
+import static huskymaps.Constants.USE_LANDMARK_HEURISTIC;
+import static huskymaps.Constants.WEIGHT_METRIC;
+
 public class StreetMapGraph implements AStarGraph<Long> {
     private Map<Long, Node> nodes = new HashMap<>(); //key: nodeID
     private Map<Long, Set<WeightedEdge<Long>>> neighbors = new HashMap<>(); //key: nodeID
+    private Map<Long, Set<WeightedEdge<Long>>> incoming = new HashMap<>(); //key: nodeID, the same edges by head
     private KDTreePointSet tree; //= new KDTreePointSet(new ArrayList<>());
     private Map<Point, Long> pointIDs = new HashMap<>(); //key is point, value is nodeID
     private BinaryRangeSearch search;
     private Map<String, List<Location>> location = new HashMap<>();
+    private final String version;
+    private final WeightMetric metric = WEIGHT_METRIC;
+    private int maxSpeed = 0; //fastest speed of any road edge, in mph
+    private volatile Heuristic heuristic; //chosen on the first A* search, so landmarks cost nothing until then
+    private final TurnRestrictions turnRestrictions = new TurnRestrictions();
+    private EdgeNames edgeNames; //indexed when the graph is built, once every edge is added
 
     public StreetMapGraph(String filename) {
-        OSMGraphHandler.initializeFromXML(this, filename);
+        this(filename, true);
+    }
+
+    /**
+     * Builds the graph from the file.
+     * @param indexEdgeNames Whether to index the edge names now, rather than leave it to a
+     *                       subclass that adds edges of its own to call indexEdgeNames.
+     */
+    protected StreetMapGraph(String filename, boolean indexEdgeNames) {
+        version = OSMGraphHandler.initializeFromXML(this, filename);
         //this (StreetMapGraph) has all nodes and edges added from filename
 
         ArrayList<Point> pointList = new ArrayList<>();
@@ -56,6 +82,9 @@ public class StreetMapGraph implements AStarGraph<Long> {
         //specifically those that correspond to places rather than spots along a road.
         //Nodes and edges are added to the graph by the OSMGraphHandler class,
         //which reads data from an OpenStreetMap dataset.
+        if (indexEdgeNames) {
+            indexEdgeNames();
+        }
     }
 
     /**
@@ -96,9 +125,8 @@ public class StreetMapGraph implements AStarGraph<Long> {
      */
     public List<Location> getLocations(String locationName) {
         List<Location> ret = new ArrayList<>();
-        ArrayList<Node> val = (ArrayList<Node>) nodes.values();
-        for (Node n : val) {
-            if (n.query().equals(locationName)) {
+        for (Node n : nodes.values()) {
+            if (locationName.equals(n.query())) {
                 ret.add(n);
             }
         }
@@ -112,14 +140,131 @@ public class StreetMapGraph implements AStarGraph<Long> {
     }
 
     /**
-     * Returns the great-circle distance between S and GOAL. xAssumes
+     * Returns a list of incoming edges for V, which differ from its outgoing edges along one-way
+     * streets. Assumes V exists in this graph.
+     */
+    public List<WeightedEdge<Long>> incoming(Long v) {
+        return new ArrayList<>(incoming.get(v));
+    }
+
+    /**
+     * Returns the estimated distance between S and GOAL from the current heuristic. Assumes
      * S and GOAL exist in this graph.
      */
     @Override
     public double estimatedDistanceToGoal(Long s, Long goal) {
+        return heuristic().estimate(s, goal);
+    }
+
+    /**
+     * Returns the great-circle distance between S and GOAL. Assumes S and GOAL exist in this
+     * graph.
+     */
+    public double greatCircleDistance(long s, long goal) {
         return location(s).greatCircleDistance(location(goal));
     }
 
+    /**
+     * Returns a lower bound on the weight of a path from S to GOAL from their great-circle
+     * distance, in the units of the weight metric. Assumes S and GOAL exist in this graph.
+     */
+    public double greatCircleEstimate(long s, long goal) {
+        return metric.lowerBound(greatCircleDistance(s, goal), maxSpeed);
+    }
+
+    /** Returns the metric that decided the weights of the edges of this graph. */
+    public WeightMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the heuristic guiding A* searches on this graph. Unless one was set, it is chosen
+     * on first use: landmark distances if USE_LANDMARK_HEURISTIC is set, since only A* searches
+     * need them, or else the great-circle distance.
+     */
+    public Heuristic heuristic() {
+        Heuristic h = heuristic;
+        if (h == null) {
+            h = chooseHeuristic();
+        }
+        return h;
+    }
+
+    private synchronized Heuristic chooseHeuristic() {
+        if (heuristic == null) {
+            heuristic = USE_LANDMARK_HEURISTIC
+                    ? new LandmarkHeuristic(this, NUM_LANDMARKS)
+                    : this::greatCircleEstimate;
+        }
+        return heuristic;
+    }
+
+    /**
+     * Replaces the heuristic guiding A* searches on this graph. The heuristic must never
+     * overestimate the distance, or searches may return paths that are not the shortest.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns the name of the edge from FROM to TO, or null if there is none, in constant time.
+     * The names are indexed when the graph is built, so edges added after that are not found.
+     */
+    public String edgeName(long from, long to) {
+        return edgeNames.name(from, to);
+    }
+
+    /** Indexes the names of the edges, which must all have been added. */
+    protected void indexEdgeNames() {
+        edgeNames = new EdgeNames(this);
+    }
+
+    /** Returns the turn restrictions of this graph. */
+    public TurnRestrictions turnRestrictions() {
+        return turnRestrictions;
+    }
+
+    /** Returns true if and only if routes on this graph must account for turns. */
+    public boolean hasTurnCosts() {
+        return !turnRestrictions.isEmpty() || hasTurnPenalties();
+    }
+
+    /** Returns true if and only if turns on this graph cost more than nothing when allowed. */
+    public boolean hasTurnPenalties() {
+        return TURN_PENALTIES && metric.turnPenalty(1) > 0;
+    }
+
+    /**
+     * Returns the weight added by turning from FROM through VIA to TO, which is infinite if
+     * the turn is restricted. Assumes all three exist in this graph.
+     */
+    public double turnCost(long from, long via, long to) {
+        if (!turnRestrictions.allows(from, via, to)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (!TURN_PENALTIES) {
+            return 0;
+        }
+        // Bearings are in (-180, 180], so the turn is normalized to the same range; right is positive
+        double angle = location(via).bearing(location(to)) - location(from).bearing(location(via));
+        angle = ((angle % 360) + 540) % 360 - 180;
+        if (from == to || Math.abs(angle) > U_TURN_DEGREES) {
+            return metric.turnPenalty(U_TURN_SECONDS);
+        } else if (Math.abs(angle) <= STRAIGHT_TURN_DEGREES) {
+            return 0;
+        }
+        return metric.turnPenalty(angle > 0 ? RIGHT_TURN_SECONDS : LEFT_TURN_SECONDS);
+    }
+
+    /**
+     * Returns a string identifying the data this graph was built from, which changes whenever
+     * the bytes of the data file do, wherever it was read from.
+     */
+    public String version() {
+        return version;
+    }
+
     /** Returns a set of my vertices. Altering this set does not alter this graph. */
     public Set<Long> vertices() {
         return new HashSet<>(nodes.keySet());
@@ -129,21 +274,33 @@ public class StreetMapGraph implements AStarGraph<Long> {
     public void addWeightedEdge(long from, long to, String name) {
         if (nodes.containsKey(from) && nodes.containsKey(to)) {
             double weight = location(from).greatCircleDistance(location(to));
-            neighbors.get(from).add(new WeightedEdge<>(from, to, weight, name));
+            addWeightedEdge(new WeightedEdge<>(from, to, weight, name));
         }
     }
 
-    /** Adds an edge to this graph if it doesn't already exist. */
-    public void addWeightedEdge(long from, long to, double weight, String name) {
+    /**
+     * Adds an edge along a road to this graph if it doesn't already exist, weighted by the
+     * weight metric from its length and road attributes.
+     * @param attributes The road attributes packed by RoadEdge.pack.
+     */
+    public void addRoadEdge(long from, long to, String name, int attributes) {
         if (nodes.containsKey(from) && nodes.containsKey(to)) {
-            neighbors.get(from).add(new WeightedEdge<>(from, to, weight, name));
+            double miles = location(from).greatCircleDistance(location(to));
+            addWeightedEdge(new RoadEdge(from, to, metric.weight(miles, attributes), name, attributes));
+            maxSpeed = Math.max(maxSpeed, RoadEdge.speed(attributes));
         }
     }
 
+    /** Adds an edge to this graph if it doesn't already exist. */
+    public void addWeightedEdge(long from, long to, double weight, String name) {
+        addWeightedEdge(new WeightedEdge<>(from, to, weight, name));
+    }
+
     /** Adds an edge to this graph if it doesn't already exist. */
     public void addWeightedEdge(WeightedEdge<Long> edge) {
-        if (nodes.containsKey(edge.from()) && nodes.containsKey(edge.to())) {
-            neighbors.get(edge.from()).add(edge);
+        if (nodes.containsKey(edge.from()) && nodes.containsKey(edge.to())
+                && neighbors.get(edge.from()).add(edge)) {
+            incoming.get(edge.to()).add(edge);
         }
     }
 
@@ -165,12 +322,18 @@ public class StreetMapGraph implements AStarGraph<Long> {
         if (!nodes.containsKey(node.id())) {
             nodes.put(node.id(), node);
             neighbors.put(node.id(), new HashSet<>());
+            incoming.put(node.id(), new HashSet<>());
         }
     }
 
-    /** Checks if a vertex has 0 out-degree from graph. */
+    /** Adds a turn restriction to this graph. */
+    void addTurnRestriction(long from, long via, long to, boolean only) {
+        turnRestrictions.add(from, via, to, only);
+    }
+
+    /** Checks if a vertex has any edges, so that routes can start or end there. */
     boolean isNavigable(Node node) {
-        return !neighbors.get(node.id()).isEmpty();
+        return !neighbors.get(node.id()).isEmpty() || !incoming.get(node.id()).isEmpty();
     }
 
     Node.Builder nodeBuilder() {
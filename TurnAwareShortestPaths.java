@@ -0,0 +1,165 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+import edu.princeton.cs.algs4.Stopwatch;
+import pq.ExtrinsicMinPQ;
+import pq.TreeMapMinPQ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Finds the shortest path between two nodes of a StreetMapGraph while paying for turns. The A*
+ * search runs over edges rather than nodes: each state is the edge a route arrives by, so the
+ * cost of turning onto the next edge is known when it is relaxed, and restricted turns, which
+ * cost infinity, are never taken. There are only a few times more states than nodes, so the
+ * search costs a small multiple of a node-based A* search. Shortcuts of a contracted graph are
+ * ignored. Edges may be weighed by a function other than their own weights, such as those of
+ * a customized hierarchy, as long as the heuristic never overestimates them.
+ *
+ * A search may also replace a section of a longer route: it then arrives at its start by the
+ * edge the route arrives by and leaves its goal by the edge the route leaves by, so the turns
+ * onto and off the section are allowed too, and it gives up on paths longer than a limit.
+ */
+public class TurnAwareShortestPaths {
+    private final Map<WeightedEdge<Long>, WeightedEdge<Long>> edgeTo = new HashMap<>();
+    private final Map<WeightedEdge<Long>, Double> distTo = new HashMap<>();
+    private final ExtrinsicMinPQ<WeightedEdge<Long>> pq = new TreeMapMinPQ<>();
+    private final StreetMapGraph g;
+    private final ToDoubleFunction<WeightedEdge<Long>> weights;
+    private final Heuristic heuristic;
+    /** The node the heuristic aims for: the goal, or the end of the departure edge. */
+    private final long target;
+    private final double limit;
+    private List<Long> solution = List.of();
+    private double solutionWeight = Double.POSITIVE_INFINITY;
+    private int numStatesExplored = 0;
+    private long numEdgesRelaxed = 0;
+    private double explorationTime;
+
+    public TurnAwareShortestPaths(StreetMapGraph g, long start, long goal, double timeout) {
+        this(g, start, goal, timeout, WeightedEdge::weight, g.heuristic());
+    }
+
+    /**
+     * Finds the shortest path with the given edge weights.
+     * @param weights The weight of each edge, or infinity if it is closed.
+     * @param heuristic A lower bound on the distance between nodes under those weights.
+     */
+    public TurnAwareShortestPaths(StreetMapGraph g, long start, long goal, double timeout,
+                                  ToDoubleFunction<WeightedEdge<Long>> weights, Heuristic heuristic) {
+        this(g, null, start, goal, null, Double.POSITIVE_INFINITY, timeout, weights, heuristic);
+    }
+
+    /**
+     * Finds the shortest path to replace a section of a route.
+     * @param arrival The edge the route arrives at the start by, or null if it starts there.
+     * @param start The first node of the section.
+     * @param goal The last node of the section.
+     * @param departure The edge the route leaves the goal by, or null if it ends there.
+     * @param limit The greatest weight of a path worth finding, including the departure edge.
+     * @param weights The weight of each edge, or infinity if it is closed.
+     * @param heuristic A lower bound on the distance between nodes under those weights.
+     */
+    public TurnAwareShortestPaths(StreetMapGraph g, WeightedEdge<Long> arrival, long start, long goal,
+                                  WeightedEdge<Long> departure, double limit, double timeout,
+                                  ToDoubleFunction<WeightedEdge<Long>> weights, Heuristic heuristic) {
+        this.g = g;
+        this.weights = weights;
+        this.heuristic = heuristic;
+        this.target = departure == null ? goal : departure.to();
+        this.limit = limit;
+        Stopwatch timer = new Stopwatch();
+        if (start == goal && (arrival == null || departure == null
+                || g.turnCost(arrival.from(), start, departure.to()) != Double.POSITIVE_INFINITY)) {
+            solution = List.of(start);
+            solutionWeight = 0;
+            return;
+        }
+        if (arrival != null) {
+            // The route has already paid for the arrival edge
+            relax(null, arrival, 0);
+        } else {
+            for (WeightedEdge<Long> e : g.neighbors(start)) {
+                relax(null, e, weights.applyAsDouble(e));
+            }
+        }
+        while (pq.size() != 0 && timer.elapsedTime() < timeout) {
+            WeightedEdge<Long> e = pq.removeSmallest();
+            numStatesExplored += 1;
+            long v = e.to();
+            if (departure == null ? v == goal : e.from() == goal && v == departure.to()) {
+                List<Long> path = constructPath(e);
+                solution = path.subList(arrival == null ? 0 : 1, path.size() - (departure == null ? 0 : 1));
+                solutionWeight = distTo.get(e);
+                break;
+            }
+            for (WeightedEdge<Long> next : g.neighbors(v)) {
+                double turnCost = g.turnCost(e.from(), v, next.to());
+                if (turnCost != Double.POSITIVE_INFINITY) {
+                    relax(e, next, distTo.get(e) + turnCost + weights.applyAsDouble(next));
+                }
+            }
+        }
+        explorationTime = timer.elapsedTime();
+    }
+
+    /** Reaches the state of arriving by the edge from the state of arriving by the previous one. */
+    private void relax(WeightedEdge<Long> previous, WeightedEdge<Long> e, double distance) {
+        if (e instanceof WeightedShortcut) {
+            return;
+        }
+        numEdgesRelaxed += 1;
+        if (distance < distTo.getOrDefault(e, Double.POSITIVE_INFINITY)) {
+            edgeTo.put(e, previous);
+            distTo.put(e, distance);
+            double priority = distance + heuristic.estimate(e.to(), target);
+            if (priority > limit) {
+                return;
+            }
+            if (pq.contains(e)) {
+                pq.changePriority(e, priority);
+            } else {
+                pq.add(e, priority);
+            }
+        }
+    }
+
+    /** Returns the path that ends by arriving along the given edge. */
+    private List<Long> constructPath(WeightedEdge<Long> e) {
+        List<Long> path = new ArrayList<>();
+        path.add(e.to());
+        while (e != null) {
+            path.add(e.from());
+            e = edgeTo.get(e);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Returns the ids of the nodes on the shortest path, or an empty list if there is none. */
+    public List<Long> solution() {
+        return solution;
+    }
+
+    /** Returns the weight of the shortest path including its turns, or infinity if there is none. */
+    public double solutionWeight() {
+        return solutionWeight;
+    }
+
+    public int numStatesExplored() {
+        return numStatesExplored;
+    }
+
+    public long numEdgesRelaxed() {
+        return numEdgesRelaxed;
+    }
+
+    public double explorationTime() {
+        return explorationTime;
+    }
+}
@@ -0,0 +1,163 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import static huskymaps.Constants.TURN_REPAIR_MAX_STRETCH;
+
+/**
+ * Repairs a shortest path that takes restricted turns, such as one found on a contraction
+ * hierarchy, which knows nothing of turns. Each restricted turn is replaced by a turn-aware
+ * search over the few hops of the path around it, which arrives and leaves by the edges the path
+ * does and gives up on detours more than twice as long as the section it replaces. When no such
+ * detour exists, the section is widened until it covers the whole path, so a search over the
+ * whole graph is only needed when a restriction changes the route from end to end.
+ *
+ * A local repair obeys the restrictions, but a route that leaves the path farther from the
+ * restricted turn may be shorter. The path being repaired ignores the restrictions, so it is no
+ * longer than any route that obeys them; a repaired route more than TURN_REPAIR_MAX_STRETCH
+ * longer than it is replaced by a search of the whole graph. Repaired routes are therefore at
+ * most TURN_REPAIR_MAX_STRETCH longer than the shortest route that obeys the restrictions.
+ */
+public class TurnRepair {
+    /** The number of hops of the path on each side of a restricted turn to replace at first. */
+    private static final int WINDOW_HOPS = 8;
+
+    private final StreetMapGraph g;
+    private final ToDoubleFunction<WeightedEdge<Long>> weights;
+    private final Heuristic heuristic;
+    private List<Long> solution;
+    private double solutionWeight;
+    private boolean searchedWholeGraph = false;
+    private int numStatesExplored = 0;
+    private long numEdgesRelaxed = 0;
+
+    /**
+     * Repairs the path with the given edge weights.
+     * @param path The node ids of a shortest path along original edges of the graph, ignoring
+     *             turn restrictions.
+     * @param timeout The time each search may take, in seconds.
+     * @param weights The weight of each edge, or infinity if it is closed.
+     * @param heuristic A lower bound on the distance between nodes under those weights.
+     */
+    public TurnRepair(StreetMapGraph g, List<Long> path, double timeout,
+                      ToDoubleFunction<WeightedEdge<Long>> weights, Heuristic heuristic) {
+        this.g = g;
+        this.weights = weights;
+        this.heuristic = heuristic;
+        solution = path;
+        double shortest = path.isEmpty() ? 0 : weight(0, path.size() - 1);
+        for (int turn = firstRestrictedTurn(0); turn != -1; turn = firstRestrictedTurn(turn)) {
+            turn = repair(turn, timeout);
+            if (turn == -1) {
+                solution = List.of();
+                break;
+            }
+        }
+        solutionWeight = solution.isEmpty() ? Double.POSITIVE_INFINITY : weight(0, solution.size() - 1);
+        if (!path.isEmpty() && !searchedWholeGraph && solutionWeight > (1 + TURN_REPAIR_MAX_STRETCH) * shortest) {
+            TurnAwareShortestPaths paths = new TurnAwareShortestPaths(g, path.get(0), path.get(path.size() - 1),
+                    timeout, weights, heuristic);
+            searchedWholeGraph = true;
+            numStatesExplored += paths.numStatesExplored();
+            numEdgesRelaxed += paths.numEdgesRelaxed();
+            // A search that timed out leaves the local repair in place
+            if (!paths.solution().isEmpty()) {
+                solution = paths.solution();
+                solutionWeight = weight(0, solution.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Replaces the section of the solution around the restricted turn at the given index.
+     * @return The index the repaired section ends at, or -1 if there is no path at all.
+     */
+    private int repair(int turn, double timeout) {
+        for (int hops = WINDOW_HOPS; ; hops *= 2) {
+            int lo = Math.max(0, turn - hops);
+            int hi = Math.min(solution.size() - 1, turn + hops);
+            boolean whole = lo == 0 && hi == solution.size() - 1;
+            WeightedEdge<Long> arrival = lo == 0 ? null : edge(lo - 1, lo);
+            WeightedEdge<Long> departure = hi == solution.size() - 1 ? null : edge(hi, hi + 1);
+            double limit = whole ? Double.POSITIVE_INFINITY
+                    : 2 * (weight(lo, hi) + (departure == null ? 0 : weights.applyAsDouble(departure)));
+            TurnAwareShortestPaths paths = new TurnAwareShortestPaths(g, arrival, solution.get(lo),
+                    solution.get(hi), departure, limit, timeout, weights, heuristic);
+            searchedWholeGraph |= whole;
+            numStatesExplored += paths.numStatesExplored();
+            numEdgesRelaxed += paths.numEdgesRelaxed();
+            if (!paths.solution().isEmpty()) {
+                List<Long> repaired = new ArrayList<>(solution.subList(0, lo));
+                repaired.addAll(paths.solution());
+                repaired.addAll(solution.subList(hi + 1, solution.size()));
+                solution = repaired;
+                return lo + paths.solution().size() - 1;
+            }
+            if (whole) {
+                return -1;
+            }
+        }
+    }
+
+    /** Returns the index of the first restricted turn at or after the given index, or -1. */
+    private int firstRestrictedTurn(int from) {
+        TurnRestrictions restrictions = g.turnRestrictions();
+        for (int i = Math.max(1, from); i + 1 < solution.size(); i += 1) {
+            if (!restrictions.allows(solution.get(i - 1), solution.get(i), solution.get(i + 1))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the lightest original edge between the nodes of the solution at two indices. */
+    private WeightedEdge<Long> edge(int i, int j) {
+        WeightedEdge<Long> best = null;
+        for (WeightedEdge<Long> e : g.neighbors(solution.get(i))) {
+            if (!(e instanceof WeightedShortcut) && e.to().equals(solution.get(j))
+                    && (best == null || weights.applyAsDouble(e) < weights.applyAsDouble(best))) {
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the weight of the solution between two indices. */
+    private double weight(int lo, int hi) {
+        double weight = 0;
+        for (int i = lo; i < hi; i += 1) {
+            weight += weights.applyAsDouble(edge(i, i + 1));
+        }
+        return weight;
+    }
+
+    /** Returns the node ids of the repaired path, or an empty list if there is none. */
+    public List<Long> solution() {
+        return solution;
+    }
+
+    /** Returns the weight of the repaired path, not counting turns, or infinity if there is none. */
+    public double solutionWeight() {
+        return solutionWeight;
+    }
+
+    /**
+     * Returns true if and only if the route came from a search of the whole graph, which makes
+     * it the shortest route that obeys the restrictions.
+     */
+    public boolean searchedWholeGraph() {
+        return searchedWholeGraph;
+    }
+
+    public int numStatesExplored() {
+        return numStatesExplored;
+    }
+
+    public long numEdgesRelaxed() {
+        return numEdgesRelaxed;
+    }
+}
@@ -0,0 +1,88 @@
+package huskymaps;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The turn restrictions of a StreetMapGraph as a compact turn table. A turn is named by three
+ * nodes: the node it comes from, the via node where it turns, and the node it goes to. Only
+ * via nodes with restrictions have an entry, holding the restricted turns as pairs of from and
+ * to ids in a flat array, so the table costs nothing for the great majority of nodes.
+ *
+ * A prohibitive restriction, such as no_left_turn, forbids its turn. A mandatory restriction,
+ * such as only_straight_on, forbids every other turn from its from node at the via node.
+ */
+public class TurnRestrictions {
+    private final Map<Long, long[]> prohibited = new HashMap<>();
+    private final Map<Long, long[]> mandatory = new HashMap<>();
+    private int size;
+
+    /**
+     * Adds a restriction.
+     * @param from The node the restricted turn comes from.
+     * @param via The node where it turns.
+     * @param to The node it goes to.
+     * @param only Whether the turn is the only one allowed from the from node, rather than
+     *             forbidden.
+     */
+    public void add(long from, long via, long to, boolean only) {
+        Map<Long, long[]> table = only ? mandatory : prohibited;
+        long[] turns = table.get(via);
+        int length = turns == null ? 0 : turns.length;
+        turns = turns == null ? new long[2] : Arrays.copyOf(turns, length + 2);
+        turns[length] = from;
+        turns[length + 1] = to;
+        table.put(via, turns);
+        size += 1;
+    }
+
+    /** Returns true if and only if the turn from one node through the via node to another is allowed. */
+    public boolean allows(long from, long via, long to) {
+        long[] turns = mandatory.get(via);
+        if (turns != null) {
+            boolean restricted = false;
+            for (int i = 0; i < turns.length; i += 2) {
+                if (turns[i] == from) {
+                    if (turns[i + 1] == to) {
+                        return true;
+                    }
+                    restricted = true;
+                }
+            }
+            if (restricted) {
+                return false;
+            }
+        }
+        turns = prohibited.get(via);
+        if (turns != null) {
+            for (int i = 0; i < turns.length; i += 2) {
+                if (turns[i] == from && turns[i + 1] == to) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if and only if every turn along the path of node ids is allowed. */
+    public boolean allows(List<Long> path) {
+        for (int i = 2; i < path.size(); i += 1) {
+            if (!allows(path.get(i - 2), path.get(i - 1), path.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the number of restrictions. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if and only if there are no restrictions. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
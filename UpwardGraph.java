@@ -0,0 +1,299 @@
+package huskymaps;
+
+import astar.WeightedEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import static huskymaps.Constants.UNPACK_CACHE_CAPACITY;
+
+/**
+ * The contraction hierarchy of a ContractedStreetMapGraph in compressed sparse row form, for
+ * queries that should not pay for boxed ids, hash maps and edge lists.
+ *
+ * Nodes are numbered by rank, which orders them by contraction order and breaks ties by id.
+ * Nodes contracted in the same round are never adjacent, so every edge of the hierarchy joins
+ * a lower-ranked node to a higher-ranked one. Each node stores only its edges to higher-ranked
+ * neighbors: the up weight is the cost of traveling from the node to the neighbor, and the down
+ * weight the cost of traveling back. Parallel edges keep only the lightest one, and a missing
+ * direction has an infinite weight. The original edges are kept for unpacking paths.
+ *
+ * For unpacking without the edge objects, each direction of each edge also records the rank
+ * of the node a shortcut bypasses, in a flat int array. The shortcut is the path down the edge
+ * from its start to that node followed by the path up the edge from that node to its end.
+ */
+public class UpwardGraph {
+    /** The rank of nodes that are not in the hierarchy. */
+    public static final int NONE = -1;
+
+    private final long[] ids;
+    private final Map<Long, Integer> ranks;
+    private final int[] firstEdge;
+    private final int[] tails;
+    private final int[] heads;
+    private final double[] upWeights;
+    private final double[] downWeights;
+    private final WeightedEdge<Long>[] upEdges;
+    private final WeightedEdge<Long>[] downEdges;
+    private final int[] upVias;
+    private final int[] downVias;
+    /** The weights of the road edges if the hierarchy was customized, or null if they are their own. */
+    private final ToDoubleFunction<WeightedEdge<Long>> roadWeights;
+    /** The unpacked nodes of shortcuts, by PathUnpacker key, for those worth keeping. */
+    private final Map<Integer, int[]> unpacked = new ConcurrentHashMap<>();
+    /** The number of nodes kept in unpacked, which stops growing at UNPACK_CACHE_CAPACITY. */
+    private final AtomicInteger unpackedNodes = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    UpwardGraph(ContractedStreetMapGraph g) {
+        List<ContractableNode> nodes = new ArrayList<>();
+        for (long id : g.vertices()) {
+            ContractableNode node = g.node(id);
+            if (node.isContracted()) {
+                nodes.add(node);
+            }
+        }
+        nodes.sort(Comparator.comparingInt(ContractableNode::contractionOrder).thenComparingLong(Node::id));
+        int n = nodes.size();
+        ids = new long[n];
+        ranks = new HashMap<>();
+        for (int rank = 0; rank < n; rank += 1) {
+            ids[rank] = nodes.get(rank).id();
+            ranks.put(ids[rank], rank);
+        }
+
+        // Collect the lightest edge in each direction between every node and its higher neighbors
+        List<TreeMap<Integer, Arc>> arcs = new ArrayList<>(n);
+        for (int rank = 0; rank < n; rank += 1) {
+            arcs.add(new TreeMap<>());
+        }
+        int numEdges = 0;
+        for (int v = 0; v < n; v += 1) {
+            for (WeightedEdge<Long> e : g.neighbors(ids[v])) {
+                int w = rank(e.to());
+                if (w == NONE || w == v) {
+                    continue;
+                }
+                int lower = Math.min(v, w);
+                Arc arc = arcs.get(lower).get(Math.max(v, w));
+                if (arc == null) {
+                    arc = new Arc();
+                    arcs.get(lower).put(Math.max(v, w), arc);
+                    numEdges += 1;
+                }
+                if (v < w && e.weight() < arc.upWeight) {
+                    arc.upWeight = e.weight();
+                    arc.upEdge = e;
+                } else if (v > w && e.weight() < arc.downWeight) {
+                    arc.downWeight = e.weight();
+                    arc.downEdge = e;
+                }
+            }
+        }
+
+        firstEdge = new int[n + 1];
+        tails = new int[numEdges];
+        heads = new int[numEdges];
+        upWeights = new double[numEdges];
+        downWeights = new double[numEdges];
+        upEdges = new WeightedEdge[numEdges];
+        downEdges = new WeightedEdge[numEdges];
+        int e = 0;
+        for (int v = 0; v < n; v += 1) {
+            firstEdge[v] = e;
+            for (Map.Entry<Integer, Arc> entry : arcs.get(v).entrySet()) {
+                Arc arc = entry.getValue();
+                tails[e] = v;
+                heads[e] = entry.getKey();
+                upWeights[e] = arc.upWeight;
+                downWeights[e] = arc.downWeight;
+                upEdges[e] = arc.upEdge;
+                downEdges[e] = arc.downEdge;
+                e += 1;
+            }
+            // Release the temporary edges of this node as soon as they are copied
+            arcs.set(v, null);
+        }
+        firstEdge[n] = e;
+        upVias = vias(upEdges);
+        downVias = vias(downEdges);
+        roadWeights = null;
+    }
+
+    /**
+     * Creates a customized hierarchy from its arrays, which are shared rather than copied.
+     * @param roadWeights The weights of the road edges the arrays were computed from.
+     */
+    UpwardGraph(long[] ids, Map<Long, Integer> ranks, int[] firstEdge, int[] tails, int[] heads,
+                double[] upWeights, double[] downWeights, WeightedEdge<Long>[] upEdges,
+                WeightedEdge<Long>[] downEdges, ToDoubleFunction<WeightedEdge<Long>> roadWeights) {
+        this.ids = ids;
+        this.ranks = ranks;
+        this.firstEdge = firstEdge;
+        this.tails = tails;
+        this.heads = heads;
+        this.upWeights = upWeights;
+        this.downWeights = downWeights;
+        this.upEdges = upEdges;
+        this.downEdges = downEdges;
+        this.upVias = vias(upEdges);
+        this.downVias = vias(downEdges);
+        this.roadWeights = roadWeights;
+    }
+
+    /** Returns the rank of the node each edge bypasses, or NONE for original edges. */
+    private int[] vias(WeightedEdge<Long>[] edges) {
+        int[] vias = new int[edges.length];
+        for (int e = 0; e < edges.length; e += 1) {
+            if (edges[e] instanceof WeightedShortcut) {
+                vias[e] = rank(((WeightedShortcut<Long>) edges[e]).srcEdge.to());
+            } else {
+                vias[e] = NONE;
+            }
+        }
+        return vias;
+    }
+
+    /** Returns the number of nodes in the hierarchy. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** Returns the rank of the node with the given id, or NONE if it is not in the hierarchy. */
+    public int rank(long id) {
+        return ranks.getOrDefault(id, NONE);
+    }
+
+    /** Returns the id of the node with the given rank. */
+    public long id(int rank) {
+        return ids[rank];
+    }
+
+    /** Returns the index of the first edge from the given node to a higher-ranked neighbor. */
+    public int firstEdge(int v) {
+        return firstEdge[v];
+    }
+
+    /** Returns one past the index of the last edge from the given node. */
+    public int endEdge(int v) {
+        return firstEdge[v + 1];
+    }
+
+    /** Returns the number of edges in the hierarchy, counting each pair of nodes once. */
+    public int numEdges() {
+        return heads.length;
+    }
+
+    /**
+     * Returns the edge between a node and a higher-ranked neighbor, or a negative number if
+     * they are not adjacent.
+     */
+    public int edge(int lower, int higher) {
+        return Arrays.binarySearch(heads, firstEdge[lower], firstEdge[lower + 1], higher);
+    }
+
+    /** Returns the lower-ranked end of the given edge. */
+    public int tail(int e) {
+        return tails[e];
+    }
+
+    /** Returns the higher-ranked end of the given edge. */
+    public int head(int e) {
+        return heads[e];
+    }
+
+    /** Returns the cost of traveling the given edge from its tail to its head. */
+    public double upWeight(int e) {
+        return upWeights[e];
+    }
+
+    /** Returns the cost of traveling the given edge from its head to its tail. */
+    public double downWeight(int e) {
+        return downWeights[e];
+    }
+
+    /** Returns the graph edge from the tail to the head, or null if there is none. */
+    public WeightedEdge<Long> upEdge(int e) {
+        return upEdges[e];
+    }
+
+    /** Returns the graph edge from the head to the tail, or null if there is none. */
+    public WeightedEdge<Long> downEdge(int e) {
+        return downEdges[e];
+    }
+
+    /**
+     * Returns the rank of the node the given edge bypasses from its tail to its head, or NONE
+     * if it is an original edge.
+     */
+    public int upVia(int e) {
+        return upVias[e];
+    }
+
+    /**
+     * Returns the rank of the node the given edge bypasses from its head to its tail, or NONE
+     * if it is an original edge.
+     */
+    public int downVia(int e) {
+        return downVias[e];
+    }
+
+    /** Returns the cached nodes of an unpacked shortcut, or null if they are not cached. */
+    int[] unpacked(int key) {
+        return unpacked.get(key);
+    }
+
+    /**
+     * Caches the nodes of an unpacked shortcut for every later unpacking, unless the cache is
+     * full. Nothing is evicted, so a full cache keeps the shortcuts of the first routes
+     * unpacked, which on a busy server are a fair sample of the common ones. Threads caching
+     * at once may overshoot UNPACK_CACHE_CAPACITY by a shortcut each.
+     */
+    void cacheUnpacked(int key, int[] nodes) {
+        if (unpackedNodes.get() + nodes.length <= UNPACK_CACHE_CAPACITY
+                && unpacked.putIfAbsent(key, nodes) == null) {
+            unpackedNodes.addAndGet(nodes.length);
+        }
+    }
+
+    /** Returns true if and only if the hierarchy was customized with new weights for the road edges. */
+    public boolean customized() {
+        return roadWeights != null;
+    }
+
+    /**
+     * Returns the weight of a road edge of the graph in this hierarchy, which is its own weight
+     * unless the hierarchy was customized. Searches outside the hierarchy weigh edges with this
+     * so that their routes agree with it.
+     * @param road A road edge of the graph, not a shortcut.
+     * @return The weight, or infinity if the road is closed.
+     */
+    public double roadWeight(WeightedEdge<Long> road) {
+        return roadWeights == null ? road.weight() : roadWeights.applyAsDouble(road);
+    }
+
+    /**
+     * Returns the shortest distances from the given node to every node.
+     * @param source The rank of the source node, or NONE.
+     * @return The distance to each node indexed by rank, or infinity for unreachable nodes.
+     */
+    public double[] distancesFrom(int source) {
+        return OneToAll.distancesFrom(this, source);
+    }
+
+    /** The lightest edges in each direction between two nodes while the graph is built. */
+    private static class Arc {
+        double upWeight = Double.POSITIVE_INFINITY;
+        double downWeight = Double.POSITIVE_INFINITY;
+        WeightedEdge<Long> upEdge;
+        WeightedEdge<Long> downEdge;
+    }
+}
@@ -0,0 +1,66 @@
+package huskymaps;
+
+/** The cost that routes minimize, which decides the weight of every edge of a StreetMapGraph. */
+public enum WeightMetric {
+    /** Edges weigh their length in miles. */
+    DISTANCE {
+        @Override
+        public double weight(double miles, int attributes) {
+            return miles;
+        }
+
+        @Override
+        public double lowerBound(double miles, int maxSpeed) {
+            return miles;
+        }
+
+        @Override
+        public double turnPenalty(double seconds) {
+            return 0;
+        }
+    },
+    /** Edges weigh the minutes it takes to travel them at the speed of their road. */
+    TRAVEL_TIME {
+        @Override
+        public double weight(double miles, int attributes) {
+            return miles * MINUTES_PER_HOUR / RoadEdge.speed(attributes);
+        }
+
+        @Override
+        public double lowerBound(double miles, int maxSpeed) {
+            return maxSpeed == 0 ? 0 : miles * MINUTES_PER_HOUR / maxSpeed;
+        }
+
+        @Override
+        public double turnPenalty(double seconds) {
+            return seconds / SECONDS_PER_MINUTE;
+        }
+    };
+
+    private static final double MINUTES_PER_HOUR = 60;
+    private static final double SECONDS_PER_MINUTE = 60;
+
+    /**
+     * Returns the weight of an edge.
+     * @param miles The length of the edge.
+     * @param attributes The packed road attributes of the edge, as made by RoadEdge.pack.
+     * @return The weight.
+     */
+    public abstract double weight(double miles, int attributes);
+
+    /**
+     * Returns a lower bound on the weight of any path of the given length.
+     * @param miles The length, such as the great-circle distance between the ends of the path.
+     * @param maxSpeed The fastest speed on any edge of the graph, in miles per hour.
+     * @return The lower bound.
+     */
+    public abstract double lowerBound(double miles, int maxSpeed);
+
+    /**
+     * Returns the weight added by a turn that takes the given time. Turns cost nothing when
+     * minimizing distance.
+     * @param seconds The time the turn takes.
+     * @return The weight.
+     */
+    public abstract double turnPenalty(double seconds);
+}
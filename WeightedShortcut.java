@@ -2,7 +2,9 @@ package huskymaps;
 
 import astar.WeightedEdge;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 public class WeightedShortcut<Vertex> extends WeightedEdge<Vertex> {
@@ -17,8 +19,12 @@ public class WeightedShortcut<Vertex> extends WeightedEdge<Vertex> {
 
     @Override
     public List<Vertex> predecessors() {
-        List<Vertex> predecessors = new ArrayList<>(srcEdge.predecessors());
-        predecessors.addAll(destEdge.predecessors());
+        List<WeightedEdge<Vertex>> edges = new ArrayList<>();
+        unpack(this, edges);
+        List<Vertex> predecessors = new ArrayList<>(edges.size());
+        for (WeightedEdge<Vertex> edge : edges) {
+            predecessors.add(edge.from());
+        }
         return predecessors;
     }
 
@@ -26,4 +32,25 @@ public class WeightedShortcut<Vertex> extends WeightedEdge<Vertex> {
     public WeightedShortcut<Vertex> flip() {
         return new WeightedShortcut<>(destEdge.flip(), srcEdge.flip(), weight(), name());
     }
+
+    /**
+     * Adds the original edges of the given edge to the list in travel order, using an explicit
+     * stack rather than recursion so that deep hierarchies need no intermediate lists.
+     * @param edge The edge, which may be a shortcut.
+     * @param edges The list to add to.
+     */
+    public static <Vertex> void unpack(WeightedEdge<Vertex> edge, List<WeightedEdge<Vertex>> edges) {
+        Deque<WeightedEdge<Vertex>> stack = new ArrayDeque<>();
+        stack.push(edge);
+        while (!stack.isEmpty()) {
+            WeightedEdge<Vertex> e = stack.pop();
+            if (e instanceof WeightedShortcut) {
+                WeightedShortcut<Vertex> shortcut = (WeightedShortcut<Vertex>) e;
+                stack.push(shortcut.destEdge);
+                stack.push(shortcut.srcEdge);
+            } else {
+                edges.add(e);
+            }
+        }
+    }
 }
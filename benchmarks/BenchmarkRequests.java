@@ -0,0 +1,44 @@
+package huskymaps.benchmarks;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import huskymaps.params.RasterRequest;
+import huskymaps.params.RouteRequest;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static huskymaps.Constants.BASE_DIR_PATH;
+
+/** Loads the fixed request sets used by the tests so that every benchmark run does the same work. */
+class BenchmarkRequests {
+    private static final String ROUTE_REQUEST_FORMAT = BASE_DIR_PATH + "tests/router/request%d.json";
+    private static final String RASTER_REQUEST_FORMAT = BASE_DIR_PATH + "tests/rasterer/request%d.json";
+    private static final int NUM_REQUESTS = 10;
+
+    private static final Gson GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .create();
+
+    static List<RouteRequest> routeRequests() throws IOException {
+        return load(ROUTE_REQUEST_FORMAT, RouteRequest.class);
+    }
+
+    static List<RasterRequest> rasterRequests() throws IOException {
+        return load(RASTER_REQUEST_FORMAT, RasterRequest.class);
+    }
+
+    private static <T> List<T> load(String format, Class<T> type) throws IOException {
+        List<T> requests = new ArrayList<>(NUM_REQUESTS);
+        for (int i = 0; i < NUM_REQUESTS; i += 1) {
+            try (Reader reader = new FileReader(String.format(format, i))) {
+                requests.add(GSON.fromJson(reader, type));
+            }
+        }
+        return requests;
+    }
+}
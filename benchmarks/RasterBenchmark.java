@@ -0,0 +1,73 @@
+package huskymaps.benchmarks;
+
+import huskymaps.params.RasterRequest;
+import huskymaps.params.RasterResult;
+import huskymaps.server.handler.impl.RasterAPIHandler;
+import huskymaps.server.logic.RasterEncoder;
+import huskymaps.server.logic.Rasterer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks computing raster grids and rendering them as the RasterAPIHandler does. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RasterBenchmark {
+    private List<RasterRequest> requests;
+    private List<RasterResult> results;
+
+    @Setup
+    public void setUp() throws IOException {
+        requests = BenchmarkRequests.rasterRequests();
+        results = new ArrayList<>();
+        for (RasterRequest request : requests) {
+            RasterResult result = Rasterer.rasterizeMap(request);
+            if (result.grid != null) {
+                results.add(result);
+            }
+        }
+    }
+
+    @Benchmark
+    public void rasterizeMap(Blackhole bh) {
+        for (RasterRequest request : requests) {
+            bh.consume(Rasterer.rasterizeMap(request));
+        }
+    }
+
+    @Benchmark
+    public void render(Blackhole bh) {
+        for (RasterResult result : results) {
+            bh.consume(RasterAPIHandler.render(result));
+        }
+    }
+
+    @Benchmark
+    public void renderAndEncode(Blackhole bh) throws IOException {
+        OutputStream os = OutputStream.nullOutputStream();
+        for (RasterResult result : results) {
+            BufferedImage image = RasterAPIHandler.render(result);
+            RasterEncoder.encode(image, os);
+            bh.consume(image);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package huskymaps.benchmarks;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import huskymaps.server.MapServer;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static huskymaps.Constants.PORT;
+import static spark.Spark.awaitInitialization;
+import static spark.Spark.stop;
+
+/**
+ * Replays a recorded request log against a running MapServer and reports latency percentiles,
+ * throughput and error rates per endpoint.
+ *
+ * Each line of the log is a JSON object naming the endpoint path and its query parameters:
+ * <pre>{"path": "/route", "query": {"start_lat": 47.65, "start_lon": -122.31, ...}}</pre>
+ *
+ * Usage: ReplayLoadTest LOG [--url URL] [--concurrency N] [--rate PER_SECOND] [--repeat N]
+ * [--start-server]. A rate of 0 sends requests as fast as the concurrency allows. With
+ * --start-server, a MapServer is started in this JVM before the replay begins.
+ *
+ * At a fixed rate, latency is measured from the time each request was due to be sent rather
+ * than the time it was sent, so that time spent waiting for a free connection behind slow
+ * requests counts against the server instead of being omitted from the percentiles.
+ */
+public class ReplayLoadTest {
+
+    /** One recorded request. */
+    private static class Entry {
+        String path;
+        Map<String, String> query;
+    }
+
+    /** Latencies and errors observed for one endpoint. */
+    private static class EndpointStats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count] = nanos;
+            count += 1;
+            if (error) {
+                errors += 1;
+            }
+        }
+
+        synchronized String summary(String path, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return String.format("%-12s %8d %7.2f%% %10.1f %9.2f %9.2f %9.2f %9.2f",
+                    path, count, count == 0 ? 0 : 100.0 * errors / count, count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+
+        /** Returns the given percentile of the sorted latencies, in milliseconds. */
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayLoadTest LOG [--url URL] [--concurrency N] "
+                    + "[--rate PER_SECOND] [--repeat N] [--start-server]");
+            System.exit(1);
+        }
+        String logPath = args[0];
+        String baseUrl = "http://localhost:" + PORT;
+        int concurrency = 8;
+        double rate = 0;
+        int repeat = 1;
+        boolean startServer = false;
+        for (int i = 1; i < args.length; i += 1) {
+            switch (args[i]) {
+                case "--url":
+                    baseUrl = args[++i];
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--repeat":
+                    repeat = Integer.parseInt(args[++i]);
+                    break;
+                case "--start-server":
+                    startServer = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<Entry> entries = readLog(logPath);
+        if (startServer) {
+            MapServer.main(new String[0]);
+            awaitInitialization();
+        }
+        try {
+            replay(entries, baseUrl, concurrency, rate, repeat);
+        } finally {
+            if (startServer) {
+                stop();
+            }
+        }
+    }
+
+    private static List<Entry> readLog(String path) throws IOException {
+        Gson gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry = gson.fromJson(line, Entry.class);
+                if (entry.path != null) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void replay(List<Entry> entries, String baseUrl, int concurrency,
+                               double rate, int repeat) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .build();
+        Semaphore permits = new Semaphore(concurrency);
+        Map<String, EndpointStats> stats = new TreeMap<>();
+        long intervalNanos = rate > 0 ? (long) (1e9 / rate) : 0;
+
+        long start = System.nanoTime();
+        long sent = 0;
+        for (int r = 0; r < repeat; r += 1) {
+            for (Entry entry : entries) {
+                long due = start + sent * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                permits.acquire();
+                EndpointStats endpoint = stats.computeIfAbsent(entry.path, p -> new EndpointStats());
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + entry.path + queryString(entry)))
+                        .GET()
+                        .build();
+                // Open-loop latency includes any delay past the due time, to avoid coordinated omission
+                long requestStart = rate > 0 ? due : System.nanoTime();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            boolean failed = error != null || response.statusCode() >= 400;
+                            endpoint.record(System.nanoTime() - requestStart, failed);
+                            permits.release();
+                        });
+                sent += 1;
+            }
+        }
+        permits.acquire(concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        System.out.println(String.format("%-12s %8s %8s %10s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, EndpointStats> endpoint : stats.entrySet()) {
+            System.out.println(endpoint.getValue().summary(endpoint.getKey(), seconds));
+        }
+        System.out.println(String.format("Sent %d requests in %.2f seconds (%.1f req/s)",
+                sent, seconds, sent / seconds));
+    }
+
+    private static String queryString(Entry entry) {
+        if (entry.query == null || entry.query.isEmpty()) {
+            return "";
+        }
+        StringJoiner joiner = new StringJoiner("&", "?", "");
+        for (Map.Entry<String, String> param : entry.query.entrySet()) {
+            joiner.add(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8) + "="
+                    + URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package huskymaps.benchmarks;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.StreetMapGraph;
+import huskymaps.params.RouteRequest;
+import huskymaps.server.logic.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static huskymaps.Constants.OSM_DB_PATH;
+
+/** Benchmarks both Router.shortestPath overloads over the router test requests. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouterBenchmark {
+    private StreetMapGraph graph;
+    private ContractedStreetMapGraph contractedGraph;
+    private List<RouteRequest> requests;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = new StreetMapGraph(OSM_DB_PATH);
+        contractedGraph = new ContractedStreetMapGraph(OSM_DB_PATH);
+        requests = BenchmarkRequests.routeRequests();
+    }
+
+    @Benchmark
+    public void shortestPathAStar(Blackhole bh) {
+        for (RouteRequest request : requests) {
+            bh.consume(Router.shortestPath(graph, request));
+        }
+    }
+
+    @Benchmark
+    public void shortestPathContracted(Blackhole bh) {
+        for (RouteRequest request : requests) {
+            bh.consume(Router.shortestPath(contractedGraph, request));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package huskymaps.benchmarks;
+
+import huskymaps.StreetMapGraph;
+import huskymaps.params.Location;
+import huskymaps.params.RouteRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static huskymaps.Constants.OSM_DB_PATH;
+
+/** Benchmarks snapping to the nearest node and the two kinds of location search. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+    /** Prefixes as typed into the search box, from one keystroke to a full word. */
+    private static final String[] PREFIXES = {"s", "se", "sea", "univ", "university", "pike", "starbucks"};
+
+    private StreetMapGraph graph;
+    private List<Location> locations;
+    private List<String> names;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = new StreetMapGraph(OSM_DB_PATH);
+        locations = new ArrayList<>();
+        for (RouteRequest request : BenchmarkRequests.routeRequests()) {
+            locations.add(new Location(request.startLat, request.startLon));
+            locations.add(new Location(request.endLat, request.endLon));
+        }
+        names = new ArrayList<>();
+        for (String prefix : PREFIXES) {
+            List<String> matches = graph.getLocationsByPrefix(prefix);
+            if (!matches.isEmpty()) {
+                names.add(matches.get(0));
+            }
+        }
+    }
+
+    @Benchmark
+    public void closest(Blackhole bh) {
+        for (Location location : locations) {
+            bh.consume(graph.closest(location));
+        }
+    }
+
+    @Benchmark
+    public void getLocationsByPrefix(Blackhole bh) {
+        for (String prefix : PREFIXES) {
+            bh.consume(graph.getLocationsByPrefix(prefix));
+        }
+    }
+
+    @Benchmark
+    public void getLocations(Blackhole bh) {
+        for (String name : names) {
+            bh.consume(graph.getLocations(name));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package huskymaps.params;
+
+import java.util.Objects;
+
+/** An alternative to the shortest route, returned as part of a RouteResult. */
+public class AlternativeRoute {
+
+    /** The length of the route in miles, or in minutes under WeightMetric.TRAVEL_TIME. */
+    public final double distance;
+    /** The HTML-friendly String representation of the navigation directions. */
+    public final String directions;
+
+    /**
+     * Constructs an AlternativeRoute instance and sets the distance and directions fields.
+     * @param distance The distance field.
+     * @param directions The directions field.
+     */
+    public AlternativeRoute(double distance, String directions) {
+        this.distance = distance;
+        this.directions = directions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AlternativeRoute that = (AlternativeRoute) o;
+        return Double.compare(that.distance, distance) == 0 &&
+                Objects.equals(directions, that.directions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(distance, directions);
+    }
+
+    @Override
+    public String toString() {
+        return "AlternativeRoute{" +
+                "distance=" + distance +
+                ", directions='" + directions + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,92 @@
+package huskymaps.params;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import spark.Request;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static huskymaps.Constants.HALT_RESPONSE;
+import static huskymaps.Constants.MAX_BATCH_ROUTES;
+import static spark.Spark.halt;
+
+/**
+ * Represents a request for many routes at once. The request body is a JSON object of the form
+ * <pre>{"routes": [{"start_lat": ..., "start_lon": ..., "end_lat": ..., "end_lon": ...}, ...],
+ * "paths": true}</pre>
+ * where paths is optional and asks for the nodes of each route as well as its distance.
+ */
+public final class BatchRouteRequest {
+
+    /** The requested routes, in order. */
+    public final List<RouteRequest> routes;
+    /** Whether the result should include the nodes of each route. */
+    public final boolean paths;
+
+    /** The shape of the JSON request body. */
+    private static class Body {
+        List<Map<String, Double>> routes;
+        boolean paths;
+    }
+
+    /**
+     * Returns a BatchRouteRequest with the routes listed in the request body.
+     * @param request Spark Request
+     * @return A populated BatchRouteRequest
+     */
+    public static BatchRouteRequest from(Request request) {
+        Body body = null;
+        try {
+            body = new Gson().fromJson(request.body(), Body.class);
+        } catch (JsonSyntaxException e) {
+            e.printStackTrace();
+            halt(HALT_RESPONSE, "Request failed: unable to parse body.");
+        }
+        if (body == null || body.routes == null) {
+            halt(HALT_RESPONSE, "Request failed: parameter not found.");
+        }
+        if (body.routes.size() > MAX_BATCH_ROUTES) {
+            halt(HALT_RESPONSE, "Request failed: more than " + MAX_BATCH_ROUTES + " routes.");
+        }
+        List<RouteRequest> routes = new ArrayList<>(body.routes.size());
+        for (Map<String, Double> route : body.routes) {
+            routes.add(RouteRequest.from(route));
+        }
+        return new BatchRouteRequest(routes, body.paths);
+    }
+
+    public BatchRouteRequest(List<RouteRequest> routes, boolean paths) {
+        this.routes = Collections.unmodifiableList(routes);
+        this.paths = paths;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BatchRouteRequest that = (BatchRouteRequest) o;
+        return paths == that.paths &&
+                Objects.equals(routes, that.routes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(routes, paths);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchRouteRequest{" +
+                "routes=" + routes +
+                ", paths=" + paths +
+                '}';
+    }
+}
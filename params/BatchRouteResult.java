@@ -0,0 +1,51 @@
+package huskymaps.params;
+
+import java.util.Arrays;
+
+/** The computed routes in response to a batch route request, in the order requested. */
+public class BatchRouteResult {
+
+    /** The distance of routes whose endpoints are not connected. */
+    public static final double UNREACHABLE = -1;
+
+    /** The length of each route in the units of WEIGHT_METRIC, or UNREACHABLE. */
+    public final double[] distances;
+    /** The node ids along each route, or null if paths were not requested. */
+    public final long[][] paths;
+
+    /**
+     * Constructs a BatchRouteResult instance and sets the distances and paths fields.
+     * @param distances The distances field.
+     * @param paths The paths field.
+     */
+    public BatchRouteResult(double[] distances, long[][] paths) {
+        this.distances = distances;
+        this.paths = paths;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BatchRouteResult that = (BatchRouteResult) o;
+        return Arrays.equals(distances, that.distances) &&
+                Arrays.deepEquals(paths, that.paths);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(distances) + Arrays.deepHashCode(paths);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchRouteResult{" +
+                "distances=" + Arrays.toString(distances) +
+                ", paths=" + Arrays.deepToString(paths) +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package huskymaps.params;
+
+import org.apache.commons.math3.util.Precision;
+import spark.Request;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static huskymaps.Constants.DECIMAL_PLACES;
+import static huskymaps.Constants.EPSILON;
+import static huskymaps.Constants.HALT_RESPONSE;
+import static spark.Spark.halt;
+
+/** Represents a request for the area reachable from a location within a distance. */
+public final class IsochroneRequest {
+
+    /** The latitude and longitude of the start location. */
+    public final double lat;
+    public final double lon;
+    /** The greatest route length, in miles or in minutes under WeightMetric.TRAVEL_TIME. */
+    public final double distance;
+
+    /**
+     * Return an IsochroneRequest with the required parameters.
+     * @param request Map containing the required parameters
+     * @return A populated IsochroneRequest of input parameter to numerical value
+     */
+    public static IsochroneRequest from(Map<String, Double> request) {
+        try {
+            return new IsochroneRequest(
+                    request.get("lat"),
+                    request.get("lon"),
+                    request.get("distance")
+                    );
+        } catch (NullPointerException e) {
+            halt(HALT_RESPONSE, "Request failed: parameter not found.");
+        }
+        return null;
+    }
+
+    /**
+     * Returns an IsochroneRequest with the required parameters.
+     * @param request Spark Request
+     * @return A populated IsochroneRequest of input parameter to numerical value
+     */
+    public static IsochroneRequest from(Request request) {
+        try {
+            return new IsochroneRequest(
+                        Double.parseDouble(request.queryParams("lat")),
+                        Double.parseDouble(request.queryParams("lon")),
+                        Double.parseDouble(request.queryParams("distance"))
+                        );
+        } catch (NullPointerException e) {
+            halt(HALT_RESPONSE, "Request failed: parameter not found.");
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+            halt(HALT_RESPONSE, "Request failed: unable to parse double.");
+        }
+        return null;
+    }
+
+    private IsochroneRequest(double lat, double lon, double distance) {
+        this.lat = lat;
+        this.lon = lon;
+        this.distance = distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IsochroneRequest that = (IsochroneRequest) o;
+        return Precision.equals(that.lat, lat, EPSILON) &&
+                Precision.equals(that.lon, lon, EPSILON) &&
+                Precision.equals(that.distance, distance, EPSILON);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                Precision.round(lat, DECIMAL_PLACES),
+                Precision.round(lon, DECIMAL_PLACES),
+                Precision.round(distance, DECIMAL_PLACES)
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "IsochroneRequest{" +
+                "lat=" + lat +
+                ", lon=" + lon +
+                ", distance=" + distance +
+                '}';
+    }
+}
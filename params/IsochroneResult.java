@@ -0,0 +1,58 @@
+package huskymaps.params;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/** The computed reachable area in response to an isochrone request. */
+public class IsochroneResult {
+
+    /** Whether or not the start location could be placed on the road network. */
+    public final boolean success;
+    /** The number of road nodes reachable within the requested distance. */
+    public final int reachable;
+    /**
+     * The convex hull of the reachable nodes as [lat, lon] pairs in counterclockwise order,
+     * or an empty array if fewer than three nodes are reachable.
+     */
+    public final double[][] polygon;
+
+    /**
+     * Constructs an IsochroneResult instance.
+     * @param success The success field.
+     * @param reachable The reachable field.
+     * @param polygon The polygon field.
+     */
+    public IsochroneResult(boolean success, int reachable, double[][] polygon) {
+        this.success = success;
+        this.reachable = reachable;
+        this.polygon = polygon;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IsochroneResult that = (IsochroneResult) o;
+        return success == that.success &&
+                reachable == that.reachable &&
+                Arrays.deepEquals(polygon, that.polygon);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(success, reachable) + Arrays.deepHashCode(polygon);
+    }
+
+    @Override
+    public String toString() {
+        return "IsochroneResult{" +
+                "success=" + success +
+                ", reachable=" + reachable +
+                ", polygon=" + Arrays.deepToString(polygon) +
+                '}';
+    }
+}
@@ -2,6 +2,7 @@ package huskymaps.params;
 
 import org.apache.commons.math3.util.Precision;
 
+import java.awt.image.BufferedImage;
 import java.util.Objects;
 
 import static huskymaps.Constants.DECIMAL_PLACES;
@@ -19,10 +20,25 @@ public class RenderedRasterResult {
     public final double lrlon;
     /** True if the query was successful. */
     public final boolean success;
+    /** The rendered image, not yet encoded. Streamed into the response instead of serialized. */
+    public final transient BufferedImage rendered;
+    /** The raster the image was rendered from. Not serialized. */
+    public final transient RasterResult raster;
 
     /** Construct a new RenderedRasterResult with the given parameters. */
     public RenderedRasterResult(RasterResult result, String image) {
+        this(result, image, null);
+    }
+
+    /** Construct a new RenderedRasterResult whose image will be encoded as it is written. */
+    public RenderedRasterResult(RasterResult result, BufferedImage rendered) {
+        this(result, null, rendered);
+    }
+
+    private RenderedRasterResult(RasterResult result, String image, BufferedImage rendered) {
         this.image = image;
+        this.rendered = rendered;
+        this.raster = result;
         this.ullat = result.ullat;
         this.ullon = result.ullon;
         this.lrlat = result.lrlat;
@@ -32,7 +48,7 @@ public class RenderedRasterResult {
 
     /** Construct a new RenderedRasterResult with the given parameters. */
     public RenderedRasterResult(RasterResult result) {
-        this(result, null);
+        this(result, null, null);
     }
 
     @Override
@@ -9,6 +9,7 @@ import java.util.Objects;
 import static huskymaps.Constants.DECIMAL_PLACES;
 import static huskymaps.Constants.EPSILON;
 import static huskymaps.Constants.HALT_RESPONSE;
+import static huskymaps.Constants.MAX_ALTERNATIVE_ROUTES;
 import static spark.Spark.halt;
 
 /** Represents a shortest-route request received from the browser. */
@@ -19,6 +20,10 @@ public final class RouteRequest {
     public final double startLon;
     public final double endLat;
     public final double endLon;
+    /** Whether the result should include statistics about how the route was computed. */
+    public final boolean debug;
+    /** How many alternatives to the shortest route the result should include. */
+    public final int alternatives;
 
     /**
      * Return a RouteRequest with the required parameters.
@@ -31,7 +36,9 @@ public final class RouteRequest {
                     request.get("start_lat"),
                     request.get("start_lon"),
                     request.get("end_lat"),
-                    request.get("end_lon")
+                    request.get("end_lon"),
+                    false,
+                    0
                     );
         } catch (NullPointerException e) {
             halt(HALT_RESPONSE, "Request failed: parameter not found.");
@@ -50,7 +57,9 @@ public final class RouteRequest {
                         Double.parseDouble(request.queryParams("start_lat")),
                         Double.parseDouble(request.queryParams("start_lon")),
                         Double.parseDouble(request.queryParams("end_lat")),
-                        Double.parseDouble(request.queryParams("end_lon"))
+                        Double.parseDouble(request.queryParams("end_lon")),
+                        request.queryParams("debug") != null,
+                        parseAlternatives(request.queryParams("alternatives"))
                         );
         } catch (NullPointerException e) {
             halt(HALT_RESPONSE, "Request failed: parameter not found.");
@@ -61,11 +70,22 @@ public final class RouteRequest {
         return null;
     }
 
-    private RouteRequest(double startLat, double startLon, double endLat, double endLon) {
+    /** Returns the optional number of alternatives, limited to MAX_ALTERNATIVE_ROUTES. */
+    private static int parseAlternatives(String alternatives) {
+        if (alternatives == null) {
+            return 0;
+        }
+        return Math.max(0, Math.min(Integer.parseInt(alternatives), MAX_ALTERNATIVE_ROUTES));
+    }
+
+    private RouteRequest(double startLat, double startLon, double endLat, double endLon, boolean debug,
+                         int alternatives) {
         this.startLat = startLat;
         this.startLon = startLon;
         this.endLat = endLat;
         this.endLon = endLon;
+        this.debug = debug;
+        this.alternatives = alternatives;
     }
 
     @Override
@@ -80,7 +100,9 @@ public final class RouteRequest {
         return Precision.equals(that.startLat, startLat, EPSILON) &&
                 Precision.equals(that.startLon, startLon, EPSILON) &&
                 Precision.equals(that.endLat, endLat, EPSILON) &&
-                Precision.equals(that.endLon, endLon, EPSILON);
+                Precision.equals(that.endLon, endLon, EPSILON) &&
+                debug == that.debug &&
+                alternatives == that.alternatives;
     }
 
     @Override
@@ -89,7 +111,9 @@ public final class RouteRequest {
                 Precision.round(startLat, DECIMAL_PLACES),
                 Precision.round(startLon, DECIMAL_PLACES),
                 Precision.round(endLat, DECIMAL_PLACES),
-                Precision.round(endLon, DECIMAL_PLACES)
+                Precision.round(endLon, DECIMAL_PLACES),
+                debug,
+                alternatives
         );
     }
 
@@ -100,6 +124,8 @@ public final class RouteRequest {
                 ", startLon=" + startLon +
                 ", endLat=" + endLat +
                 ", endLon=" + endLon +
+                ", debug=" + debug +
+                ", alternatives=" + alternatives +
                 '}';
     }
 }
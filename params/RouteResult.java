@@ -1,5 +1,6 @@
 package huskymaps.params;
 
+import java.util.List;
 import java.util.Objects;
 
 /** The computed routing result in response to a browser request. */
@@ -9,6 +10,10 @@ public class RouteResult {
     public final boolean success;
     /** The HTML-friendly String representation of the navigation directions. */
     public final String directions;
+    /** Statistics about the route computation, or null unless requested for debugging. */
+    public final RouteStats stats;
+    /** Alternatives to the route in order of length, or null unless requested. */
+    public final List<AlternativeRoute> alternatives;
 
     /**
      * Constructs a RouteResult instance and sets the success and distance fields.
@@ -16,8 +21,33 @@ public class RouteResult {
      * @param directions The directions field.
      */
     public RouteResult(boolean success, String directions) {
+        this(success, directions, null);
+    }
+
+    /**
+     * Constructs a RouteResult instance with debugging statistics. The statistics are not
+     * considered by equals or hashCode.
+     * @param success The success field.
+     * @param directions The directions field.
+     * @param stats The stats field.
+     */
+    public RouteResult(boolean success, String directions, RouteStats stats) {
+        this(success, directions, stats, null);
+    }
+
+    /**
+     * Constructs a RouteResult instance with debugging statistics and alternative routes.
+     * @param success The success field.
+     * @param directions The directions field.
+     * @param stats The stats field.
+     * @param alternatives The alternatives field.
+     */
+    public RouteResult(boolean success, String directions, RouteStats stats,
+                       List<AlternativeRoute> alternatives) {
         this.success = success;
         this.directions = directions;
+        this.stats = stats;
+        this.alternatives = alternatives;
     }
 
     @Override
@@ -30,12 +60,13 @@ public class RouteResult {
         }
         RouteResult that = (RouteResult) o;
         return success == that.success &&
-                Objects.equals(directions, that.directions);
+                Objects.equals(directions, that.directions) &&
+                Objects.equals(alternatives, that.alternatives);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(success, directions);
+        return Objects.hash(success, directions, alternatives);
     }
 
     @Override
@@ -43,6 +74,7 @@ public class RouteResult {
         return "RouteResult{" +
                 "success=" + success +
                 ", directions='" + directions + '\'' +
+                ", alternatives=" + alternatives +
                 '}';
     }
 }
@@ -0,0 +1,49 @@
+package huskymaps.params;
+
+/**
+ * Statistics describing how a route was computed. Filled in by the Router as the route is
+ * computed, and returned in the RouteResult when the request asks for debug information.
+ */
+public class RouteStats {
+
+    /**
+     * The search algorithm used: "contraction", "astar", "turns" for an edge-based A* search
+     * that accounts for turns, or "contraction+repair" if a contraction hierarchy path took
+     * restricted turns and the sections around them were replaced by local turn-aware searches,
+     * which find a route at most TURN_REPAIR_MAX_STRETCH longer than the shortest that obeys
+     * them. The solver is "contraction+turns" if the repair had to search the whole graph,
+     * which finds the shortest.
+     */
+    public String solver;
+    /** Time spent snapping the start and end locations to graph nodes, in milliseconds. */
+    public double snapMillis;
+    /** Nodes settled by the forward search from the start, or by the only search for A*. */
+    public int forwardSettled;
+    /** Nodes settled by the backward search from the end. Always 0 for A*. */
+    public int backwardSettled;
+    /** Edges relaxed across all searches. Unknown, and left at 0, for A*. */
+    public long edgesRelaxed;
+    /** Time spent in the forward and backward searches, in milliseconds. */
+    public double searchMillis;
+    /** Time spent expanding shortcuts into the final path, in milliseconds. */
+    public double unpackMillis;
+    /** Total time spent computing the route, in milliseconds. */
+    public double totalMillis;
+    /** Number of nodes on the final path. */
+    public int pathLength;
+
+    @Override
+    public String toString() {
+        return "RouteStats{" +
+                "solver='" + solver + '\'' +
+                ", snapMillis=" + snapMillis +
+                ", forwardSettled=" + forwardSettled +
+                ", backwardSettled=" + backwardSettled +
+                ", edgesRelaxed=" + edgesRelaxed +
+                ", searchMillis=" + searchMillis +
+                ", unpackMillis=" + unpackMillis +
+                ", totalMillis=" + totalMillis +
+                ", pathLength=" + pathLength +
+                '}';
+    }
+}
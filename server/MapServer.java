@@ -2,22 +2,29 @@ package huskymaps.server;
 
 import huskymaps.ContractedStreetMapGraph;
 import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.impl.BatchRouteAPIHandler;
 import huskymaps.server.handler.impl.ClearRouteAPIHandler;
+import huskymaps.server.handler.impl.IsochroneAPIHandler;
+import huskymaps.server.handler.impl.MetricsAPIHandler;
 import huskymaps.server.handler.impl.RasterAPIHandler;
 import huskymaps.server.handler.impl.RedirectAPIHandler;
 import huskymaps.server.handler.impl.RoutingAPIHandler;
 import huskymaps.server.handler.impl.SearchAPIHandler;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import static huskymaps.Constants.HEROKU_DEPLOYMENT;
 import static huskymaps.Constants.OSM_DB_PATH;
 import static huskymaps.Constants.PORT;
 import static huskymaps.Constants.SEMANTIC_STREET_GRAPH;
+import static huskymaps.Constants.SERVER_THREADS;
 import static spark.Spark.before;
 import static spark.Spark.get;
 import static spark.Spark.port;
+import static spark.Spark.post;
 import static spark.Spark.staticFileLocation;
+import static spark.Spark.threadPool;
 
 public class MapServer {
 
@@ -26,12 +33,18 @@ public class MapServer {
             "/route", new RoutingAPIHandler(),
             "/clear_route", new ClearRouteAPIHandler(),
             "/search", new SearchAPIHandler(),
+            "/isochrone", new IsochroneAPIHandler(),
             "/", new RedirectAPIHandler()
             );
 
+    private static final Map<String, APIRouteHandler> POST_HANDLERS = Map.of(
+            "/route/batch", new BatchRouteAPIHandler()
+            );
+
     /** Entry point for the MapServer. Everything starts here. */
     public static void main(String[] args) {
         port(getPort());
+        threadPool(SERVER_THREADS);
 
         SEMANTIC_STREET_GRAPH = new ContractedStreetMapGraph(OSM_DB_PATH);
         staticFileLocation("/static/page");
@@ -46,6 +59,12 @@ public class MapServer {
         for (Map.Entry<String, APIRouteHandler> apiRoute : HANDLERS.entrySet()) {
             get(apiRoute.getKey(), apiRoute.getValue());
         }
+        for (Map.Entry<String, APIRouteHandler> apiRoute : POST_HANDLERS.entrySet()) {
+            post(apiRoute.getKey(), apiRoute.getValue());
+        }
+        Map<String, APIRouteHandler> allHandlers = new HashMap<>(HANDLERS);
+        allHandlers.putAll(POST_HANDLERS);
+        get("/metrics", new MetricsAPIHandler(allHandlers));
     }
 
     private static int getPort() {
@@ -7,6 +7,18 @@ import spark.Request;
 import spark.Response;
 import spark.Route;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static huskymaps.Constants.NOT_MODIFIED_RESPONSE;
+import static huskymaps.Constants.OVERLOADED_RESPONSE;
+import static huskymaps.Constants.REQUEST_DEADLINE_MS;
+import static spark.Spark.halt;
+
 /**
  * This is the base class that defines the procedure for handling an API request
  * The process is defined as such that first the request parameters are read, then
@@ -14,7 +26,8 @@ import spark.Route;
  */
 public abstract class APIRouteHandler<Req, Res> implements Route {
 
-    private Gson gson;
+    protected final Gson gson;
+    private final RouteMetrics metrics = new RouteMetrics();
 
     public APIRouteHandler() {
         gson = new GsonBuilder()
@@ -24,9 +37,131 @@ public abstract class APIRouteHandler<Req, Res> implements Route {
 
     @Override
     public Object handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        metrics.started();
+        try {
+            ExecutorService executor = HandlerExecutors.executor(endpointClass());
+            Object body;
+            if (executor == null) {
+                body = handlePhases(request, response, start);
+            } else {
+                // Shed heavy requests that would not finish in time rather than queueing them
+                AdmissionController admission = admission();
+                if (!admission.acquire(start + TimeUnit.MILLISECONDS.toNanos(REQUEST_DEADLINE_MS))) {
+                    rejectOverloaded(response);
+                }
+                long admitted = System.nanoTime();
+                try {
+                    Future<Object> future;
+                    try {
+                        future = executor.submit(() -> handlePhases(request, response, start));
+                    } catch (RejectedExecutionException e) {
+                        // Too many heavy requests already hold server threads
+                        rejectOverloaded(response);
+                        throw e;
+                    }
+                    body = HandlerExecutors.await(future);
+                } finally {
+                    admission.release(System.nanoTime() - admitted);
+                }
+            }
+            failed = false;
+            return body;
+        } finally {
+            metrics.finished(System.nanoTime() - start, failed);
+        }
+    }
+
+    /** Halts the request with OVERLOADED_RESPONSE, asking the client to retry shortly. */
+    private void rejectOverloaded(Response response) {
+        metrics.reject();
+        response.header("Retry-After", "1");
+        halt(OVERLOADED_RESPONSE, "Request rejected: server is overloaded.");
+    }
+
+    /** Parses, processes and serializes the request, recording how long each phase took. */
+    private Object handlePhases(Request request, Response response, long submitted) throws IOException {
+        long start = System.nanoTime();
+        metrics.queue.recordNanos(start - submitted);
         Req req = parseRequest(request);
+        long parsed = System.nanoTime();
+        metrics.parse.recordNanos(parsed - start);
+        // The encoding is negotiated first, since each encoding of a response has its own tag
+        String encoding = null;
+        if (compressible()) {
+            response.header("Vary", "Accept-Encoding");
+            encoding = HeaderNegotiation.contentEncoding(request.headers("Accept-Encoding"));
+        }
+        String etag = etag(req);
+        if (etag != null) {
+            etag = HeaderNegotiation.etagWithEncoding(etag, encoding);
+            response.header("ETag", etag);
+            response.header("Cache-Control", "no-cache");
+            if (HeaderNegotiation.notModified(request.headers("If-None-Match"), etag)) {
+                response.status(NOT_MODIFIED_RESPONSE);
+                return "";
+            }
+        }
         Res res = processRequest(req, response);
-        return buildJsonResponse(res);
+        long processed = System.nanoTime();
+        metrics.process.recordNanos(processed - parsed);
+        if (encoding != null) {
+            response.header("Content-Encoding", encoding);
+        }
+        Object body = buildJsonResponse(res, response);
+        metrics.serialize.recordNanos(System.nanoTime() - processed);
+        return body;
+    }
+
+    /**
+     * Returns the class of this endpoint, which decides the executor its requests run on.
+     * Handlers that block for a long time should override this to return HEAVY.
+     */
+    protected HandlerExecutors.EndpointClass endpointClass() {
+        return HandlerExecutors.EndpointClass.INTERACTIVE;
+    }
+
+    /**
+     * Returns whether JSON responses of this endpoint should be compressed for clients that
+     * accept it. Handlers whose responses are large and compress well should override this.
+     */
+    protected boolean compressible() {
+        return false;
+    }
+
+    /**
+     * Returns a strong entity tag for the response to the given request, or null if responses
+     * should not be cached. The tag is suffixed with the content encoding of each response. Handlers whose response depends only on the request and the graph,
+     * and that have no side effects, can override this so that repeated requests are answered
+     * with NOT_MODIFIED_RESPONSE.
+     * @param request parameters
+     * @return the quoted entity tag, or null
+     */
+    protected String etag(Req request) {
+        return null;
+    }
+
+    /**
+     * Returns a quoted entity tag derived from the given parts.
+     * @see HeaderNegotiation#etagOf(String...)
+     */
+    protected static String etagOf(String... parts) {
+        return HeaderNegotiation.etagOf(parts);
+    }
+
+    /** Returns the latency, in-flight and error metrics of this handler. */
+    public RouteMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the admission controller limiting concurrent requests to this handler, which is
+     * shared with every other handler of its endpoint class.
+     * @return the admission controller, or null if requests to this handler are always admitted
+     */
+    public AdmissionController admission() {
+        return HandlerExecutors.admission(endpointClass());
     }
 
     /**
@@ -45,11 +180,38 @@ public abstract class APIRouteHandler<Req, Res> implements Route {
     protected abstract Res processRequest(Req request, Response response);
 
     /**
-     * Builds a JSON response to return from the result object
+     * Builds a JSON response from the result object, writing it directly to the response
+     * body. Handlers that do not respond with JSON can override this to return the body instead.
      * @param result the result of processing the request
-     * @return JSON response
+     * @param response response object
+     * @return the response body, or an empty String if the response was already written
+     * @throws IOException if the response could not be written
+     */
+    protected Object buildJsonResponse(Res result, Response response) throws IOException {
+        JsonOutput out = jsonOutput(response);
+        try {
+            gson.toJson(result, out);
+            // Finishing commits the response, so Spark will not write a body of its own
+            out.finish();
+        } finally {
+            out.release();
+        }
+        return "";
+    }
+
+    /**
+     * Returns a writer over the response body of the current request.
+     * @param response response object
+     * @return the writer, with the content type set to Spark's default if not already set, and
+     * compressing with the Content-Encoding of the response if one was negotiated. Callers
+     * must call release on it once done, even if writing failed.
+     * @throws IOException if the response body could not be opened
      */
-    protected Object buildJsonResponse(Res result) {
-        return gson.toJson(result);
+    protected static JsonOutput jsonOutput(Response response) throws IOException {
+        HttpServletResponse raw = response.raw();
+        if (raw.getContentType() == null) {
+            raw.setContentType("text/html; charset=utf-8");
+        }
+        return JsonOutput.to(raw.getOutputStream(), raw.getHeader("Content-Encoding"));
     }
 }
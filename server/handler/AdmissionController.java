@@ -0,0 +1,126 @@
+package huskymaps.server.handler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests a class of endpoints handles at once, queueing a bounded
+ * number of requests beyond the limit and rejecting the rest.
+ *
+ * The limit adapts to the observed service time: it grows by one every limit requests that
+ * finish within the target latency, and shrinks by DECREASE_FACTOR, at most once per target
+ * latency, when a request takes longer. A request is also rejected up front if, given the
+ * average service time and the requests ahead of it, it would not finish before its deadline.
+ */
+public class AdmissionController {
+    private static final int MIN_LIMIT = 1;
+    private static final double DECREASE_FACTOR = 0.75;
+    /** Weight of the newest service time in the moving average. */
+    private static final double AVERAGE_WEIGHT = 0.1;
+
+    private final int maxLimit;
+    private final int queueSize;
+    private final long targetNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double averageNanos;
+    private long lastDecrease;
+
+    /**
+     * @param maxLimit The largest number of requests to handle at once.
+     * @param queueSize The largest number of requests to queue beyond the limit.
+     * @param targetMillis The service time above which the limit is decreased.
+     */
+    public AdmissionController(int maxLimit, int queueSize, long targetMillis) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.queueSize = queueSize;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.limit = this.maxLimit;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Waits until the request may be handled. Every successful call must be followed by a call
+     * to release once the request is done.
+     * @param deadline The System.nanoTime by which the request should be done.
+     * @return true if the request was admitted, or false if it should be rejected.
+     * @throws InterruptedException if the thread was interrupted while queued.
+     */
+    public boolean acquire(long deadline) throws InterruptedException {
+        lock.lock();
+        try {
+            if (waiting == 0 && inFlight < (int) limit) {
+                inFlight += 1;
+                return true;
+            }
+            if (waiting >= queueSize || !canFinish(waiting + 1, deadline)) {
+                return false;
+            }
+            waiting += 1;
+            try {
+                while (inFlight >= (int) limit) {
+                    long remaining = deadline - (long) averageNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    released.awaitNanos(remaining);
+                }
+                inFlight += 1;
+                return true;
+            } finally {
+                waiting -= 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks an admitted request as done and adapts the limit to its service time.
+     * @param nanos How long the request took after it was admitted.
+     */
+    public void release(long nanos) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight -= 1;
+            averageNanos = averageNanos == 0 ? nanos : averageNanos + AVERAGE_WEIGHT * (nanos - averageNanos);
+            long now = System.nanoTime();
+            if (nanos > targetNanos) {
+                if (now - lastDecrease > targetNanos) {
+                    limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+                    lastDecrease = now;
+                }
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns the current concurrency limit. */
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether a request at the given queue position is expected to finish by the
+     * deadline. Every limit requests ahead of it take about one average service time.
+     */
+    private boolean canFinish(int position, long deadline) {
+        double expectedNanos = averageNanos * (1 + Math.floor(position / limit));
+        return System.nanoTime() + expectedNanos <= deadline;
+    }
+}
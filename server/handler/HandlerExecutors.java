@@ -0,0 +1,109 @@
+package huskymaps.server.handler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static huskymaps.Constants.ADMISSION_TARGET_LATENCY_MS;
+import static huskymaps.Constants.HEAVY_HANDLER_THREADS;
+import static huskymaps.Constants.MAX_HEAVY_REQUESTS;
+
+/**
+ * Runs API handlers on separately sized executors per endpoint class, so that slow requests
+ * such as rastering and routing cannot occupy every server thread and starve cheap, interactive
+ * requests such as search.
+ *
+ * The server thread that receives a heavy request waits for it, so heavy requests share one
+ * budget of MAX_HEAVY_REQUESTS server threads: one admission controller for every heavy
+ * endpoint admits at most HEAVY_HANDLER_THREADS at once and queues the rest of the budget.
+ * The heavy executor also rejects tasks beyond the budget with a RejectedExecutionException.
+ * Bounding the waiters, rather than only the handlers, is what leaves server threads free for
+ * interactive requests during a burst.
+ */
+public class HandlerExecutors {
+
+    /** How expensive an endpoint is to handle. */
+    public enum EndpointClass {
+        /** Cheap requests, handled directly on the server thread that received them. */
+        INTERACTIVE,
+        /**
+         * Expensive requests, handled on a pool of at most HEAVY_HANDLER_THREADS threads with
+         * at most MAX_HEAVY_REQUESTS requests in total.
+         */
+        HEAVY
+    }
+
+    private static final ExecutorService HEAVY_EXECUTOR = new ThreadPoolExecutor(
+            HEAVY_HANDLER_THREADS, HEAVY_HANDLER_THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_HEAVY_REQUESTS - HEAVY_HANDLER_THREADS),
+            threadFactory("heavy-handler")
+    );
+
+    private static final AdmissionController HEAVY_ADMISSION = new AdmissionController(
+            HEAVY_HANDLER_THREADS, MAX_HEAVY_REQUESTS - HEAVY_HANDLER_THREADS,
+            ADMISSION_TARGET_LATENCY_MS
+    );
+
+    /**
+     * Returns the executor for the given endpoint class.
+     * @param endpointClass The endpoint class.
+     * @return The executor, or null if requests should be handled on the calling thread.
+     */
+    public static ExecutorService executor(EndpointClass endpointClass) {
+        if (endpointClass == EndpointClass.HEAVY) {
+            return HEAVY_EXECUTOR;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the admission controller shared by every endpoint of the given class.
+     * @param endpointClass The endpoint class.
+     * @return The admission controller, or null if requests are always admitted.
+     */
+    public static AdmissionController admission(EndpointClass endpointClass) {
+        if (endpointClass == EndpointClass.HEAVY) {
+            return HEAVY_ADMISSION;
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the task and returns its result, rethrowing whatever the task threw.
+     * @param future The submitted task.
+     * @return The result of the task.
+     * @throws Exception The exception thrown by the task.
+     */
+    public static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /** Returns a factory for daemon threads with the given name and a sequence number. */
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
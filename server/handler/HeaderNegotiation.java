@@ -0,0 +1,110 @@
+package huskymaps.server.handler;
+
+/**
+ * Reads the request headers that decide how a response is encoded and whether it needs to be
+ * sent at all: Accept-Encoding, and If-None-Match against the entity tag of the response.
+ */
+public class HeaderNegotiation {
+
+    /**
+     * Returns a quoted entity tag derived from the given parts using 64-bit FNV-1a.
+     * @param parts the values that determine the response, such as the graph version and the
+     *              request parameters
+     * @return the quoted entity tag
+     */
+    public static String etagOf(String... parts) {
+        long hash = 0xcbf29ce484222325L;
+        for (String part : parts) {
+            String value = String.valueOf(part);
+            for (int i = 0; i < value.length(); i += 1) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            // Separate the parts so that ("ab", "c") and ("a", "bc") differ
+            hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Returns the entity tag of a response sent with the given content encoding. A strong tag
+     * must differ between encodings of the same response, or a cache could answer a request
+     * for one encoding with the body of another.
+     * @param etag the quoted entity tag of the response before encoding
+     * @param encoding the Content-Encoding of the response, or null if it is not encoded
+     * @return the quoted entity tag, suffixed with the encoding if there is one
+     */
+    public static String etagWithEncoding(String etag, String encoding) {
+        if (encoding == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * Returns whether the client already has the response with the given entity tag, so that
+     * it should be answered with NOT_MODIFIED_RESPONSE.
+     * @param ifNoneMatch the If-None-Match header, or null if absent
+     * @param etag the quoted entity tag of the response
+     * @return true if the header lists the entity tag, ignoring weakness, or is "*"
+     */
+    public static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the content encoding to compress with from the Accept-Encoding header, preferring
+     * gzip over deflate. A coding with a quality of 0 is refused, and "*" stands for every
+     * coding the header does not name.
+     * @param acceptEncoding the Accept-Encoding header, or null if absent
+     * @return "gzip", "deflate" or null if the client accepts neither
+     */
+    public static String contentEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        Boolean gzip = null;
+        Boolean deflate = null;
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.trim().split(";");
+            boolean acceptable = true;
+            for (int i = 1; i < params.length; i += 1) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        acceptable = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        acceptable = false;
+                    }
+                }
+            }
+            String name = params[0].trim().toLowerCase();
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = acceptable;
+            } else if (name.equals("deflate")) {
+                deflate = acceptable;
+            } else if (name.equals("*")) {
+                any = acceptable;
+            }
+        }
+        if (gzip == null ? Boolean.TRUE.equals(any) : gzip) {
+            return "gzip";
+        }
+        if (deflate == null ? Boolean.TRUE.equals(any) : deflate) {
+            return "deflate";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package huskymaps.server.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A UTF-8 Writer over an output stream, with a buffer that is reused by every response written
+ * on the same thread. Serializing through it avoids building the whole response as a String and
+ * then copying it again into the response body.
+ *
+ * The output can be compressed with gzip or deflate, in which case finish must be called once
+ * everything is written, and release must be called afterwards even if writing failed, so that
+ * the native compressor is freed. Closing the writer only flushes it, since the underlying
+ * stream belongs to the server.
+ */
+public final class JsonOutput extends Writer {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final ThreadLocal<JsonOutput> WRITERS = ThreadLocal.withInitial(JsonOutput::new);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final OutputStream bytes = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeBytes(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            JsonOutput.this.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBuffer();
+        }
+    };
+    private OutputStream out;
+    private DeflaterOutputStream compressor;
+    private Deflater deflater;
+    private int count;
+    private char highSurrogate;
+
+    private JsonOutput() {
+    }
+
+    /**
+     * Returns the writer of the current thread, emptied and pointed at the given stream.
+     * @param out The stream to write to.
+     * @param contentEncoding "gzip" or "deflate" to compress the output, or null to write it as is.
+     * @return The writer, which must not be used after the next call to this method on the
+     * same thread.
+     * @throws IOException if the compression header could not be written.
+     */
+    public static JsonOutput to(OutputStream out, String contentEncoding) throws IOException {
+        JsonOutput writer = WRITERS.get();
+        // Free the compressor of an earlier response whose writer was never released
+        writer.release();
+        if ("gzip".equals(contentEncoding)) {
+            FastGZIPOutputStream gzip = new FastGZIPOutputStream(out);
+            writer.compressor = gzip;
+            writer.deflater = gzip.deflater();
+        } else if ("deflate".equals(contentEncoding)) {
+            writer.deflater = new Deflater(Deflater.BEST_SPEED);
+            writer.compressor = new DeflaterOutputStream(out, writer.deflater, BUFFER_SIZE);
+        } else {
+            writer.compressor = null;
+            writer.deflater = null;
+        }
+        writer.out = writer.compressor != null ? writer.compressor : out;
+        writer.count = 0;
+        writer.highSurrogate = 0;
+        return writer;
+    }
+
+    /**
+     * Returns a stream writing bytes into this writer's buffer unchanged, for content that is
+     * already encoded such as Base64 data. Closing the stream only flushes the buffer.
+     */
+    public OutputStream bytes() {
+        return bytes;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i += 1) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i += 1) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Writes everything buffered, ends the compressed stream if there is one and flushes the
+     * underlying stream, which commits the response.
+     * @throws IOException if the output could not be written.
+     */
+    public void finish() throws IOException {
+        endSurrogate();
+        flushBuffer();
+        if (compressor != null) {
+            compressor.finish();
+            compressor.flush();
+            release();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Frees the native compressor if there is one. The streams cannot be closed without closing
+     * the response, so this must be called once the output is done, including when writing it
+     * failed. Does nothing after finish, or if the output is not compressed.
+     */
+    public void release() {
+        if (deflater != null) {
+            deflater.end();
+            compressor = null;
+            deflater = null;
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (count + 4 > buffer.length) {
+            flushBuffer();
+        }
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            // An unpaired surrogate cannot be encoded
+            buffer[count++] = '?';
+            writeChar(c);
+            return;
+        }
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /** Writes a high surrogate that was never followed by its low surrogate as '?'. */
+    private void endSurrogate() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            writeByte('?');
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        endSurrogate();
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] b, int off, int len) throws IOException {
+        endSurrogate();
+        if (len > buffer.length - count) {
+            flushBuffer();
+            if (len >= buffer.length) {
+                out.write(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /** A gzip stream at BEST_SPEED whose compressor can be freed without closing the stream. */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+        FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+
+        Deflater deflater() {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package huskymaps.server.handler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations with log-linear buckets, in the style of HdrHistogram.
+ * Durations are recorded in microseconds. Each power of two is split into SUB_BUCKETS linear
+ * buckets, so any reported percentile is within about 3% of the true value.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Durations are capped at about 71 minutes, which is 2^32 microseconds. */
+    private static final int MAX_EXPONENT = 31;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int NUM_BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records a duration given in nanoseconds. */
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /** Records a duration given in microseconds, or any other non-negative count. */
+    public void record(long value) {
+        value = Math.max(0, Math.min(value, MAX_VALUE));
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /** Returns the number of recorded durations. */
+    public long count() {
+        return count.sum();
+    }
+
+    /** Returns the sum of recorded durations in microseconds. */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /** Returns the largest recorded duration in microseconds. */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns an estimate of the given percentile in microseconds.
+     * @param p The percentile as a fraction between 0 and 1.
+     * @return The midpoint of the bucket containing the percentile, or 0 if nothing is recorded.
+     */
+    public long percentile(double p) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i += 1) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(midpoint(i), max());
+            }
+        }
+        return max();
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + mantissa;
+    }
+
+    private static long midpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int mantissa = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + mantissa) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+}
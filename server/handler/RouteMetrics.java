@@ -0,0 +1,70 @@
+package huskymaps.server.handler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latency, in-flight and error counts for one API route, broken down by handling phase. */
+public class RouteMetrics {
+    /** Time spent waiting for admission and a handler thread. */
+    public final LatencyHistogram queue = new LatencyHistogram();
+    /** Time spent in parseRequest. */
+    public final LatencyHistogram parse = new LatencyHistogram();
+    /** Time spent in processRequest. */
+    public final LatencyHistogram process = new LatencyHistogram();
+    /** Time spent in buildJsonResponse. */
+    public final LatencyHistogram serialize = new LatencyHistogram();
+    /** Time spent handling the whole request, including failed requests. */
+    public final LatencyHistogram total = new LatencyHistogram();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the route-specific histogram with the given name, creating it if needed.
+     * @param name The name of the statistic, including its unit, such as "snap_micros".
+     * @return The histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /** Returns every route-specific histogram, keyed and sorted by name. */
+    public Map<String, LatencyHistogram> histograms() {
+        return histograms;
+    }
+
+    /** Returns the number of requests currently being handled. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /** Returns the number of requests that failed with an exception or halt. */
+    public long errors() {
+        return errors.sum();
+    }
+
+    /** Returns the number of requests rejected because the server was overloaded. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    void reject() {
+        rejected.increment();
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void finished(long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        total.recordNanos(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+}
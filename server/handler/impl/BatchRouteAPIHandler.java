@@ -0,0 +1,45 @@
+package huskymaps.server.handler.impl;
+
+import huskymaps.params.BatchRouteRequest;
+import huskymaps.params.BatchRouteResult;
+import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.HandlerExecutors;
+import huskymaps.server.logic.BatchRouter;
+import spark.Request;
+import spark.Response;
+
+import static huskymaps.Constants.SEMANTIC_STREET_GRAPH;
+
+/**
+ * Handles POST requests for many routes at once, so that clients needing distances between
+ * many pairs of locations do not pay for a round trip per route. Unlike RoutingAPIHandler,
+ * this does not change the route drawn on the map.
+ */
+public class BatchRouteAPIHandler extends APIRouteHandler<BatchRouteRequest, BatchRouteResult> {
+
+    @Override
+    protected HandlerExecutors.EndpointClass endpointClass() {
+        return HandlerExecutors.EndpointClass.HEAVY;
+    }
+
+    @Override
+    protected boolean compressible() {
+        return true;
+    }
+
+    @Override
+    protected BatchRouteRequest parseRequest(Request request) {
+        return BatchRouteRequest.from(request);
+    }
+
+    /**
+     * Computes the distance, and optionally the path, of every requested route.
+     * @param request BatchRouteRequest
+     * @param response Ignored.
+     * @return BatchRouteResult
+     */
+    @Override
+    protected BatchRouteResult processRequest(BatchRouteRequest request, Response response) {
+        return BatchRouter.route(SEMANTIC_STREET_GRAPH, request);
+    }
+}
@@ -1,11 +1,10 @@
 package huskymaps.server.handler.impl;
 
 import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.logic.DrawnRoute;
 import spark.Request;
 import spark.Response;
 
-import static huskymaps.Constants.ROUTE_LIST;
-
 /** Handles the "Clear Route" button in Bearmaps. */
 public class ClearRouteAPIHandler extends APIRouteHandler {
 
@@ -16,7 +15,7 @@ public class ClearRouteAPIHandler extends APIRouteHandler {
 
     @Override
     protected Object processRequest(Object request, Response response) {
-        ROUTE_LIST.clear();
+        DrawnRoute.setCurrent(DrawnRoute.EMPTY);
         return true;
     }
 }
@@ -0,0 +1,54 @@
+package huskymaps.server.handler.impl;
+
+import huskymaps.params.IsochroneRequest;
+import huskymaps.params.IsochroneResult;
+import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.HandlerExecutors;
+import huskymaps.server.logic.Isochrone;
+import spark.Request;
+import spark.Response;
+
+import static huskymaps.Constants.SEMANTIC_STREET_GRAPH;
+
+/**
+ * Handles requests for the area reachable from a location within a distance, such as the
+ * service area of a store.
+ */
+public class IsochroneAPIHandler extends APIRouteHandler<IsochroneRequest, IsochroneResult> {
+
+    @Override
+    protected HandlerExecutors.EndpointClass endpointClass() {
+        return HandlerExecutors.EndpointClass.HEAVY;
+    }
+
+    @Override
+    protected boolean compressible() {
+        return true;
+    }
+
+    /**
+     * Isochrones depend only on the request, the graph and the weights of its hierarchy, so they
+     * can be cached until the graph is customized.
+     */
+    @Override
+    protected String etag(IsochroneRequest request) {
+        return etagOf(SEMANTIC_STREET_GRAPH.version(), String.valueOf(SEMANTIC_STREET_GRAPH.hierarchyGeneration()),
+                String.valueOf(request.lat), String.valueOf(request.lon), String.valueOf(request.distance));
+    }
+
+    @Override
+    protected IsochroneRequest parseRequest(Request request) {
+        return IsochroneRequest.from(request);
+    }
+
+    /**
+     * Finds the nodes reachable within the requested distance and their enclosing polygon.
+     * @param request IsochroneRequest
+     * @param response Ignored.
+     * @return IsochroneResult
+     */
+    @Override
+    protected IsochroneResult processRequest(IsochroneRequest request, Response response) {
+        return Isochrone.isochrone(SEMANTIC_STREET_GRAPH, request);
+    }
+}
@@ -0,0 +1,112 @@
+package huskymaps.server.handler.impl;
+
+import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.AdmissionController;
+import huskymaps.server.handler.LatencyHistogram;
+import huskymaps.server.handler.RouteMetrics;
+import spark.Request;
+import spark.Response;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reports the metrics of every API route in the Prometheus text exposition format, so that
+ * latency can be broken down into parsing, processing and JSON serialization.
+ */
+public class MetricsAPIHandler extends APIRouteHandler<Object, String> {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PHASES = {"queue", "parse", "process", "serialize", "total"};
+
+    private final Map<String, APIRouteHandler> handlers;
+
+    /**
+     * Creates a handler reporting on the given routes.
+     * @param handlers The handlers to report on, keyed by route.
+     */
+    public MetricsAPIHandler(Map<String, APIRouteHandler> handlers) {
+        this.handlers = new TreeMap<>(handlers);
+    }
+
+    @Override
+    protected Object parseRequest(Request request) {
+        return null;
+    }
+
+    @Override
+    protected String processRequest(Object request, Response response) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP huskymaps_request_seconds Time spent in each phase of handling a request.\n");
+        sb.append("# TYPE huskymaps_request_seconds summary\n");
+        for (Map.Entry<String, APIRouteHandler> route : handlers.entrySet()) {
+            RouteMetrics metrics = route.getValue().metrics();
+            LatencyHistogram[] histograms = {metrics.queue, metrics.parse, metrics.process, metrics.serialize, metrics.total};
+            for (int i = 0; i < PHASES.length; i += 1) {
+                String labels = "route=\"" + route.getKey() + "\",phase=\"" + PHASES[i] + "\"";
+                for (double q : QUANTILES) {
+                    appendSample(sb, "huskymaps_request_seconds", labels + ",quantile=\"" + q + "\"",
+                            histograms[i].percentile(q) / 1e6);
+                }
+                appendSample(sb, "huskymaps_request_seconds_sum", labels, histograms[i].sum() / 1e6);
+                appendSample(sb, "huskymaps_request_seconds_count", labels, histograms[i].count());
+            }
+        }
+        sb.append("# HELP huskymaps_route_stat Route-specific statistics, such as search work per query.\n");
+        sb.append("# TYPE huskymaps_route_stat summary\n");
+        for (Map.Entry<String, APIRouteHandler> route : handlers.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> stat : route.getValue().metrics().histograms().entrySet()) {
+                String labels = "route=\"" + route.getKey() + "\",stat=\"" + stat.getKey() + "\"";
+                for (double q : QUANTILES) {
+                    appendSample(sb, "huskymaps_route_stat", labels + ",quantile=\"" + q + "\"",
+                            stat.getValue().percentile(q));
+                }
+                appendSample(sb, "huskymaps_route_stat_sum", labels, stat.getValue().sum());
+                appendSample(sb, "huskymaps_route_stat_count", labels, stat.getValue().count());
+            }
+        }
+        sb.append("# HELP huskymaps_requests_in_flight Requests currently being handled.\n");
+        sb.append("# TYPE huskymaps_requests_in_flight gauge\n");
+        for (Map.Entry<String, APIRouteHandler> route : handlers.entrySet()) {
+            appendSample(sb, "huskymaps_requests_in_flight", "route=\"" + route.getKey() + "\"",
+                    route.getValue().metrics().inFlight());
+        }
+        sb.append("# HELP huskymaps_request_errors_total Requests that failed with an exception or halt.\n");
+        sb.append("# TYPE huskymaps_request_errors_total counter\n");
+        for (Map.Entry<String, APIRouteHandler> route : handlers.entrySet()) {
+            appendSample(sb, "huskymaps_request_errors_total", "route=\"" + route.getKey() + "\"",
+                    route.getValue().metrics().errors());
+        }
+        sb.append("# HELP huskymaps_admission_limit Current concurrency limit shared by heavy endpoints.\n");
+        sb.append("# TYPE huskymaps_admission_limit gauge\n");
+        Set<AdmissionController> controllers = new LinkedHashSet<>();
+        for (APIRouteHandler handler : handlers.values()) {
+            if (handler.admission() != null) {
+                controllers.add(handler.admission());
+            }
+        }
+        for (AdmissionController controller : controllers) {
+            appendSample(sb, "huskymaps_admission_limit", "class=\"heavy\"", controller.limit());
+        }
+        sb.append("# HELP huskymaps_requests_rejected_total Requests rejected because the server was overloaded.\n");
+        sb.append("# TYPE huskymaps_requests_rejected_total counter\n");
+        for (Map.Entry<String, APIRouteHandler> route : handlers.entrySet()) {
+            if (route.getValue().admission() != null) {
+                appendSample(sb, "huskymaps_requests_rejected_total", "route=\"" + route.getKey() + "\"",
+                        route.getValue().metrics().rejected());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    protected Object buildJsonResponse(String result, Response response) {
+        response.type("text/plain; version=0.0.4");
+        return result;
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+}
@@ -1,25 +1,28 @@
 package huskymaps.server.handler.impl;
 
+import com.google.gson.JsonElement;
 import huskymaps.params.Location;
 import huskymaps.params.RasterRequest;
 import huskymaps.params.RasterResult;
 import huskymaps.params.RenderedRasterResult;
 import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.HandlerExecutors;
+import huskymaps.server.handler.JsonOutput;
+import huskymaps.server.logic.DrawnRoute;
+import huskymaps.server.logic.RasterEncoder;
 import huskymaps.server.logic.Rasterer;
+import huskymaps.server.logic.TileCache;
+import huskymaps.server.logic.TilePrefetcher;
 import spark.Request;
 import spark.Response;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Base64;
+import java.util.Map;
 
-import static huskymaps.Constants.HEROKU_DEPLOYMENT;
-import static huskymaps.Constants.IMG_ROOT;
-import static huskymaps.Constants.ROUTE_LIST;
 import static huskymaps.Constants.ROUTE_STROKE_COLOR;
 import static huskymaps.Constants.ROUTE_STROKE_WIDTH_PX;
 import static huskymaps.Constants.SEMANTIC_STREET_GRAPH;
@@ -31,36 +34,92 @@ import static huskymaps.Constants.TILE_SIZE;
  */
 public class RasterAPIHandler extends APIRouteHandler<RasterRequest, RenderedRasterResult> {
 
+    private static final String IMAGE_PREFIX = "{\"image\":\"";
+
+    @Override
+    protected HandlerExecutors.EndpointClass endpointClass() {
+        return HandlerExecutors.EndpointClass.HEAVY;
+    }
+
     @Override
     protected RasterRequest parseRequest(Request request) {
         return RasterRequest.from(request);
     }
 
     /**
-     * Takes a user query and finds the grid of images that best matches the query.
+     * Takes a user query and finds the grid of images that best matches the query. The image
+     * is rendered as the response is built.
      * @param request RasterRequest
      * @param response Ignored
-     * @return RenderedRasterResult
+     * @return RenderedRasterResult without an image
      */
     @Override
     protected RenderedRasterResult processRequest(RasterRequest request, Response response) {
-        RasterResult raster = Rasterer.rasterizeMap(request);
-        if (raster.grid != null) {
-            // Render the result as an image if successful
-            BufferedImage image = render(raster);
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            try {
-                ImageIO.write(image, "png", os);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            return new RenderedRasterResult(raster, Base64.getEncoder().encodeToString(os.toByteArray()));
-        } else {
-            return new RenderedRasterResult(raster);
+        return new RenderedRasterResult(Rasterer.rasterizeMap(request));
+    }
+
+    /**
+     * Renders the image of a successful result and streams it, encoded as Base64, directly into
+     * the response, followed by the rest of the result as JSON, so that the image never exists
+     * as a byte array or String. Prefetching waits while the image is rendered and encoded,
+     * the costliest steps, which happen together here so that the wait always ends. Tiles
+     * around the result are prefetched only once the response has been written.
+     * @param result RenderedRasterResult
+     * @param response response object
+     * @return An empty String, since the response has already been written
+     * @throws IOException if the response could not be written
+     */
+    @Override
+    protected Object buildJsonResponse(RenderedRasterResult result, Response response) throws IOException {
+        if (!result.success) {
+            return super.buildJsonResponse(result, response);
+        }
+        TilePrefetcher.foregroundStarted();
+        try {
+            writeResponse(new RenderedRasterResult(result.raster, render(result.raster)), response);
+        } finally {
+            TilePrefetcher.foregroundFinished();
+        }
+        TilePrefetcher.prefetch(result.raster);
+        return "";
+    }
+
+    /** Writes the encoded image and the rest of the result into the response. */
+    private void writeResponse(RenderedRasterResult result, Response response) throws IOException {
+        JsonOutput out = jsonOutput(response);
+        try {
+            writeRendered(result, out);
+        } finally {
+            out.release();
         }
     }
 
-    private static BufferedImage render(RasterResult result) {
+    /** Writes the encoded image and the rest of the result as JSON. */
+    private void writeRendered(RenderedRasterResult result, JsonOutput out) throws IOException {
+        out.write(IMAGE_PREFIX);
+        // Closing the Base64 stream writes the padding and flushes into the shared buffer
+        OutputStream base64 = Base64.getEncoder().wrap(out.bytes());
+        RasterEncoder.encode(result.rendered, base64);
+        base64.close();
+        out.write('"');
+        // The image field is null here, so the remaining fields serialize without it
+        for (Map.Entry<String, JsonElement> field : gson.toJsonTree(result).getAsJsonObject().entrySet()) {
+            out.write(',');
+            gson.toJson(field.getKey(), out);
+            out.write(':');
+            gson.toJson(field.getValue(), out);
+        }
+        out.write('}');
+        // Finishing commits the response, so Spark will not write a body of its own
+        out.finish();
+    }
+
+    /**
+     * Draws the tiles of the result, and the current route if there is one, into one image.
+     * @param result A RasterResult with a non-null grid
+     * @return The rendered image
+     */
+    public static BufferedImage render(RasterResult result) {
         int numVertTiles = result.grid.length;
         int numHorizTiles = result.grid[0].length;
 
@@ -75,7 +134,7 @@ public class RasterAPIHandler extends APIRouteHandler<RasterRequest, RenderedRas
 
         for (int r = 0; r < numVertTiles; r += 1) {
             for (int c = 0; c < numHorizTiles; c += 1) {
-                graphic.drawImage(getTile(result.grid[r][c]), x, y, null);
+                graphic.drawImage(TileCache.get(result.grid[r][c]), x, y, null);
                 x += TILE_SIZE;
                 if (x >= image.getWidth()) {
                     x = 0;
@@ -86,13 +145,15 @@ public class RasterAPIHandler extends APIRouteHandler<RasterRequest, RenderedRas
 
         final double wdpp = (result.lrlon - result.ullon) / image.getWidth();
         final double hdpp = (result.ullat - result.lrlat) / image.getHeight();
-        if (ROUTE_LIST != null && !ROUTE_LIST.isEmpty()) {
+        // Read the route once, since a concurrent route request may replace it
+        DrawnRoute route = DrawnRoute.current();
+        if (!route.isEmpty()) {
             Graphics2D g2d = (Graphics2D) graphic;
             g2d.setColor(ROUTE_STROKE_COLOR);
             g2d.setStroke(new BasicStroke(ROUTE_STROKE_WIDTH_PX,
                     BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            ROUTE_LIST.stream().reduce((v, w) -> {
+            route.atDepth(result.grid[0][0].depth).stream().reduce((v, w) -> {
                 Location vLocation = SEMANTIC_STREET_GRAPH.location(v);
                 Location wLocation = SEMANTIC_STREET_GRAPH.location(w);
                 g2d.drawLine(
@@ -106,20 +167,4 @@ public class RasterAPIHandler extends APIRouteHandler<RasterRequest, RenderedRas
         }
         return image;
     }
-
-    private static BufferedImage getTile(Rasterer.Tile name) {
-        String path = IMG_ROOT + name;
-        BufferedImage tile = null;
-        try {
-            File in = new File(path);
-            if (!HEROKU_DEPLOYMENT) {
-                tile = ImageIO.read(in);
-            } else {
-                tile = ImageIO.read(Thread.currentThread().getContextClassLoader().getResource(path));
-            }
-        } catch (IOException | NullPointerException e) {
-            e.printStackTrace();
-        }
-        return tile;
-    }
 }
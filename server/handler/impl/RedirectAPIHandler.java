@@ -17,7 +17,7 @@ public class RedirectAPIHandler extends APIRouteHandler {
     }
 
     @Override
-    protected Object buildJsonResponse(Object result) {
+    protected Object buildJsonResponse(Object result, Response response) {
         return true;
     }
 }
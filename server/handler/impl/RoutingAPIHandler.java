@@ -1,18 +1,25 @@
 package huskymaps.server.handler.impl;
 
 import huskymaps.server.handler.APIRouteHandler;
+import huskymaps.server.handler.HandlerExecutors;
+import huskymaps.server.handler.RouteMetrics;
+import huskymaps.server.logic.DrawnRoute;
 import huskymaps.server.logic.Router;
 import huskymaps.server.logic.Navigation;
+import huskymaps.AlternativeRoutes;
+import huskymaps.Constants;
+import huskymaps.params.AlternativeRoute;
 import huskymaps.params.RouteRequest;
 import huskymaps.params.RouteResult;
+import huskymaps.params.RouteStats;
 
 import spark.Request;
 import spark.Response;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static huskymaps.Constants.SEMANTIC_STREET_GRAPH;
-import static huskymaps.Constants.ROUTE_LIST;
 
 /**
  * Handles requests from the web browser for routes between locations. The
@@ -20,6 +27,20 @@ import static huskymaps.Constants.ROUTE_LIST;
  */
 public class RoutingAPIHandler extends APIRouteHandler<RouteRequest, RouteResult> {
 
+    @Override
+    protected HandlerExecutors.EndpointClass endpointClass() {
+        return HandlerExecutors.EndpointClass.HEAVY;
+    }
+
+    /**
+     * Route results are compressed but not given entity tags, since routing also sets the
+     * route drawn by later raster requests.
+     */
+    @Override
+    protected boolean compressible() {
+        return true;
+    }
+
     @Override
     protected RouteRequest parseRequest(Request request) {
         return RouteRequest.from(request);
@@ -27,17 +48,44 @@ public class RoutingAPIHandler extends APIRouteHandler<RouteRequest, RouteResult
 
     /**
      * Takes a user query in the form of a pair of (lat/lon) values, and finds
-     * street directions between the given points.
+     * street directions between the given points. The route replaces the one drawn on the map
+     * only once it is simplified, and the response is built from this request's route alone.
+     * Alternatives are found only if requested, and are not drawn on the map.
      * @param request RouteRequest
      * @param response Ignored.
      * @return RouteResult
      */
     @Override
     protected RouteResult processRequest(RouteRequest request, Response response) {
-        ROUTE_LIST = Router.shortestPath(SEMANTIC_STREET_GRAPH, request);
-        return new RouteResult(!ROUTE_LIST.isEmpty(), getDirectionsText(
-                    Navigation.routeDirections(SEMANTIC_STREET_GRAPH, ROUTE_LIST)
-        ));
+        RouteStats stats = new RouteStats();
+        List<Long> route = Router.shortestPath(SEMANTIC_STREET_GRAPH, request, stats);
+        DrawnRoute.setCurrent(DrawnRoute.of(SEMANTIC_STREET_GRAPH, route));
+        recordStats(stats);
+        return new RouteResult(!route.isEmpty(), getDirectionsText(
+                    Navigation.routeDirections(SEMANTIC_STREET_GRAPH, route)
+        ), request.debug ? stats : null, request.alternatives > 0 ? alternatives(request, route) : null);
+    }
+
+    /** Finds the requested alternatives to the route along with their directions. */
+    private List<AlternativeRoute> alternatives(RouteRequest request, List<Long> route) {
+        List<AlternativeRoute> result = new ArrayList<>();
+        for (AlternativeRoutes.Route alternative : Router.alternativeRoutes(SEMANTIC_STREET_GRAPH, request, route)) {
+            result.add(new AlternativeRoute(alternative.distance(), getDirectionsText(
+                    Navigation.routeDirections(SEMANTIC_STREET_GRAPH, alternative.path()))));
+        }
+        return result;
+    }
+
+    /** Adds the statistics of one route computation to the aggregate histograms. */
+    private void recordStats(RouteStats stats) {
+        RouteMetrics metrics = metrics();
+        metrics.histogram("snap_micros").record((long) (stats.snapMillis * 1000));
+        metrics.histogram("search_micros").record((long) (stats.searchMillis * 1000));
+        metrics.histogram("unpack_micros").record((long) (stats.unpackMillis * 1000));
+        metrics.histogram("forward_settled_nodes").record(stats.forwardSettled);
+        metrics.histogram("backward_settled_nodes").record(stats.backwardSettled);
+        metrics.histogram("edges_relaxed").record(stats.edgesRelaxed);
+        metrics.histogram("path_nodes").record(stats.pathLength);
     }
 
     /** Takes the current route and converts it into an HTML-friendly String. */
@@ -16,6 +16,17 @@ public class SearchAPIHandler extends APIRouteHandler<SearchRequest, List> {
         return new SearchRequest(request.queryParams("term"), request.queryParams("full") != null);
     }
 
+    @Override
+    protected boolean compressible() {
+        return true;
+    }
+
+    /** Search results depend only on the request and the graph, so they can be cached. */
+    @Override
+    protected String etag(SearchRequest request) {
+        return etagOf(SEMANTIC_STREET_GRAPH.version(), request.term, String.valueOf(request.full));
+    }
+
     @Override
     protected List processRequest(SearchRequest request, Response response) {
         if (request.full) {
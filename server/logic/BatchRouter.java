@@ -0,0 +1,95 @@
+package huskymaps.server.logic;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.HierarchyQuery;
+import huskymaps.TurnRepair;
+import huskymaps.UpwardGraph;
+import huskymaps.params.BatchRouteRequest;
+import huskymaps.params.BatchRouteResult;
+import huskymaps.params.Location;
+import huskymaps.params.RouteRequest;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static huskymaps.Constants.BATCH_ROUTER_THREADS;
+
+/** Application logic for the BatchRouteAPIHandler. */
+public class BatchRouter {
+    /**
+     * The pool every batch computes its routes on. A parallel stream started by a task of a
+     * pool runs on that pool, so a large batch takes at most BATCH_ROUTER_THREADS threads and
+     * leaves the common pool to DistanceTable and hierarchy customization.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(BATCH_ROUTER_THREADS);
+    /** Each worker thread keeps its own query, and with it its search workspaces. */
+    private static final ThreadLocal<HierarchyQuery> QUERIES = new ThreadLocal<>();
+
+    /**
+     * Computes every requested route. All endpoints are snapped to the graph first, then the
+     * routes are computed in parallel on the contraction hierarchy, by the threads of POOL. A
+     * route that takes a restricted turn is repaired as Router repairs it, and its distance is
+     * that of the repair, which is at most TURN_REPAIR_MAX_STRETCH longer than the shortest.
+     * @param g The graph to use.
+     * @param request The requested routes.
+     * @return The distance, and optionally the path, of each route in the order requested.
+     */
+    public static BatchRouteResult route(ContractedStreetMapGraph g, BatchRouteRequest request) {
+        return POOL.submit(() -> computeRoutes(g, request)).join();
+    }
+
+    /** Computes every requested route with parallel streams, which run on the calling pool. */
+    private static BatchRouteResult computeRoutes(ContractedStreetMapGraph g, BatchRouteRequest request) {
+        UpwardGraph upward = g.upwardGraph();
+        List<RouteRequest> routes = request.routes;
+        int[] endpoints = IntStream.range(0, 2 * routes.size()).parallel().map(i -> {
+            RouteRequest route = routes.get(i / 2);
+            Location location = i % 2 == 0
+                    ? new Location(route.startLat, route.startLon)
+                    : new Location(route.endLat, route.endLon);
+            return upward.rank(g.closest(location));
+        }).toArray();
+
+        double[] distances = new double[routes.size()];
+        long[][] paths = request.paths ? new long[routes.size()][] : null;
+        IntStream.range(0, routes.size()).parallel().forEach(i -> {
+            int source = endpoints[2 * i];
+            int target = endpoints[2 * i + 1];
+            if (source == UpwardGraph.NONE || target == UpwardGraph.NONE) {
+                distances[i] = BatchRouteResult.UNREACHABLE;
+                if (paths != null) {
+                    paths[i] = new long[0];
+                }
+                return;
+            }
+            HierarchyQuery query = query(upward);
+            double distance = query.run(source, target);
+            List<Long> path = paths != null || !g.turnRestrictions().isEmpty() ? query.path() : null;
+            if (path != null && !g.turnRestrictions().allows(path)) {
+                TurnRepair repair = new TurnRepair(g, path, 20, upward::roadWeight,
+                        upward.customized() ? (s, t) -> 0 : g.heuristic());
+                path = repair.solution();
+                distance = repair.solutionWeight();
+            }
+            distances[i] = distance == Double.POSITIVE_INFINITY ? BatchRouteResult.UNREACHABLE : distance;
+            if (paths != null) {
+                paths[i] = path.stream().mapToLong(Long::longValue).toArray();
+            }
+        });
+        return new BatchRouteResult(distances, paths);
+    }
+
+    /**
+     * Returns the query of the current thread, replacing it if it was for another graph. Router
+     * shares it, since a thread runs one query at a time.
+     */
+    static HierarchyQuery query(UpwardGraph upward) {
+        HierarchyQuery query = QUERIES.get();
+        if (query == null || query.graph() != upward) {
+            query = new HierarchyQuery(upward);
+            QUERIES.set(query);
+        }
+        return query;
+    }
+}
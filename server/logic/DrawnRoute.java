@@ -0,0 +1,69 @@
+package huskymaps.server.logic;
+
+import huskymaps.StreetMapGraph;
+
+import java.util.List;
+
+/**
+ * A route drawn on rastered images, along with its simplifications. Instances are immutable,
+ * so a route and its simplified geometry are always published and read together.
+ */
+public class DrawnRoute {
+
+    /** No route at all. */
+    public static final DrawnRoute EMPTY = new DrawnRoute(List.of(), List.of());
+
+    /**
+     * The route drawn on rastered images. The route and its simplifications are replaced
+     * together, so concurrent requests never see one without the other.
+     */
+    private static volatile DrawnRoute current = EMPTY;
+
+    private final List<Long> route;
+    private final List<List<Long>> simplified;
+
+    private DrawnRoute(List<Long> route, List<List<Long>> simplified) {
+        this.route = route;
+        this.simplified = simplified;
+    }
+
+    /**
+     * Returns the given route along with its simplification at each raster depth.
+     * @param g The graph the route was computed on.
+     * @param route The route as a list of node ids.
+     */
+    public static DrawnRoute of(StreetMapGraph g, List<Long> route) {
+        if (route.isEmpty()) {
+            return EMPTY;
+        }
+        return new DrawnRoute(List.copyOf(route), RouteSimplifier.simplify(g, route));
+    }
+
+    /** Returns the route currently drawn on rastered images. */
+    public static DrawnRoute current() {
+        return current;
+    }
+
+    /** Replaces the route drawn on rastered images. */
+    public static void setCurrent(DrawnRoute route) {
+        current = route;
+    }
+
+    /** Returns true if and only if there is no route to draw. */
+    public boolean isEmpty() {
+        return route.isEmpty();
+    }
+
+    /** Returns the full route as a list of node ids. */
+    public List<Long> route() {
+        return route;
+    }
+
+    /** Returns the route simplified for the given depth, or the full route if unavailable. */
+    public List<Long> atDepth(int depth) {
+        if (depth >= 0 && depth < simplified.size()) {
+            return simplified.get(depth);
+        }
+        return route;
+    }
+}
@@ -0,0 +1,88 @@
+package huskymaps.server.logic;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.UpwardGraph;
+import huskymaps.params.IsochroneRequest;
+import huskymaps.params.IsochroneResult;
+import huskymaps.params.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** Application logic for the IsochroneAPIHandler. */
+public class Isochrone {
+
+    /**
+     * Finds the road nodes reachable from the requested location within the requested
+     * distance, and the convex polygon that encloses them. Turn restrictions are ignored by the
+     * one-to-all distances, so the polygon may include nodes only reachable by restricted turns.
+     * @param g The graph to use.
+     * @param request The requested location and distance.
+     * @return The number of reachable nodes and their convex hull.
+     */
+    public static IsochroneResult isochrone(ContractedStreetMapGraph g, IsochroneRequest request) {
+        UpwardGraph upward = g.upwardGraph();
+        long source = g.closest(new Location(request.lat, request.lon));
+        if (upward.rank(source) == UpwardGraph.NONE) {
+            return new IsochroneResult(false, 0, new double[0][]);
+        }
+        double[] distTo = upward.distancesFrom(upward.rank(source));
+        List<Location> reachable = new ArrayList<>();
+        for (int v = 0; v < distTo.length; v += 1) {
+            if (distTo[v] <= request.distance) {
+                reachable.add(g.location(upward.id(v)));
+            }
+        }
+        List<Location> hull = convexHull(reachable);
+        double[][] polygon = new double[hull.size()][];
+        for (int i = 0; i < hull.size(); i += 1) {
+            polygon[i] = new double[]{hull.get(i).lat(), hull.get(i).lon()};
+        }
+        return new IsochroneResult(true, reachable.size(), polygon);
+    }
+
+    /**
+     * Returns the convex hull of the locations with Andrew's monotone chain algorithm, treating
+     * longitude as x and latitude as y.
+     * @param locations The locations.
+     * @return The hull vertices in counterclockwise order, or an empty list if the locations
+     * do not enclose an area.
+     */
+    static List<Location> convexHull(List<Location> locations) {
+        List<Location> sorted = new ArrayList<>(locations);
+        sorted.sort(Comparator.comparingDouble(Location::lon).thenComparingDouble(Location::lat));
+        int n = sorted.size();
+        if (n < 3) {
+            return List.of();
+        }
+        Location[] hull = new Location[2 * n];
+        int k = 0;
+        // Lower hull from left to right, then upper hull from right to left
+        for (int i = 0; i < n; i += 1) {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], sorted.get(i)) <= 0) {
+                k -= 1;
+            }
+            hull[k] = sorted.get(i);
+            k += 1;
+        }
+        for (int i = n - 2, lower = k + 1; i >= 0; i -= 1) {
+            while (k >= lower && cross(hull[k - 2], hull[k - 1], sorted.get(i)) <= 0) {
+                k -= 1;
+            }
+            hull[k] = sorted.get(i);
+            k += 1;
+        }
+        // The last vertex repeats the first
+        if (k - 1 < 3) {
+            return List.of();
+        }
+        return Arrays.asList(Arrays.copyOf(hull, k - 1));
+    }
+
+    /** Returns the cross product of OA and OB, which is positive for a counterclockwise turn. */
+    private static double cross(Location o, Location a, Location b) {
+        return (a.lon() - o.lon()) * (b.lat() - o.lat()) - (a.lat() - o.lat()) * (b.lon() - o.lon());
+    }
+}
@@ -1,7 +1,9 @@
 package huskymaps.server.logic;
 
 import huskymaps.StreetMapGraph;
+import huskymaps.params.Location;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -10,15 +12,53 @@ import java.util.regex.Pattern;
 public class Navigation {
 
     /**
-     * Create the list of directions corresponding to a route on the graph.
+     * Create the list of directions corresponding to a route on the graph. The route is read in
+     * a single pass: each edge is named from the graph's edge name index, consecutive edges on
+     * the same way are grouped into one Step, and a new way starts with a turn classified from
+     * the bearings of the edges on either side of it.
      * @param g The graph to use.
      * @param route The route to translate into directions. Each element
      *              corresponds to a node from the graph in the route.
-     * @return A list of Steps for the route.
+     * @return A list of Steps for the route, which is empty if the route has no edges.
      */
     public static List<Step> routeDirections(StreetMapGraph g, List<Long> route) {
-        // Optional
-        return null;
+        List<Step> steps = new ArrayList<>();
+        if (route.size() < 2) {
+            return steps;
+        }
+        Step step = null;
+        double prevBearing = 0;
+        Location from = g.location(route.get(0));
+        for (int i = 1; i < route.size(); i += 1) {
+            Location to = g.location(route.get(i));
+            String way = wayName(g.edgeName(route.get(i - 1), route.get(i)));
+            double bearing = normalizeBearing(from.bearing(to));
+            if (step == null) {
+                step = new Step();
+                step.direction = Step.START;
+                step.way = way;
+                steps.add(step);
+            } else if (!way.equals(step.way)) {
+                step = new Step();
+                step.direction = Step.getDirection(prevBearing, bearing);
+                step.way = way;
+                steps.add(step);
+            }
+            step.distance += from.greatCircleDistance(to);
+            prevBearing = bearing;
+            from = to;
+        }
+        return steps;
+    }
+
+    /** Returns the name of a way as shown in directions, given the name of an edge on it. */
+    private static String wayName(String name) {
+        return name == null || name.isEmpty() ? Step.UNKNOWN_ROAD : name;
+    }
+
+    /** Returns the bearing in [0, 360) for a bearing in degrees from true north. */
+    private static double normalizeBearing(double bearing) {
+        return (bearing % 360 + 360) % 360;
     }
 
     /**
@@ -0,0 +1,56 @@
+package huskymaps.server.logic;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import static huskymaps.Constants.RASTER_COMPRESSION_QUALITY;
+import static huskymaps.Constants.RASTER_IMAGE_FORMAT;
+
+/** Application logic for encoding the images rendered by the RasterAPIHandler. */
+public class RasterEncoder {
+
+    /** Image writers are expensive to look up and are not thread-safe, so each thread keeps one. */
+    private static final ThreadLocal<ImageWriter> WRITERS = ThreadLocal.withInitial(() -> {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(RASTER_IMAGE_FORMAT);
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("No image writer found for format: " + RASTER_IMAGE_FORMAT);
+        }
+        return writers.next();
+    });
+
+    /**
+     * Encodes the image in RASTER_IMAGE_FORMAT and writes it to the output stream. The output
+     * stream is not closed.
+     * @param image The rendered image.
+     * @param os The stream to write the encoded image to.
+     * @throws IOException if the image could not be written.
+     */
+    public static void encode(BufferedImage image, OutputStream os) throws IOException {
+        ImageWriter writer = WRITERS.get();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            // For PNG, the quality selects the deflate level: higher is faster but larger.
+            // For JPEG, the quality is the usual lossy quality factor.
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] compressionTypes = param.getCompressionTypes();
+            if (compressionTypes != null && param.getCompressionType() == null) {
+                param.setCompressionType(compressionTypes[0]);
+            }
+            param.setCompressionQuality(RASTER_COMPRESSION_QUALITY);
+        }
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.setOutput(null);
+        }
+    }
+}
@@ -29,39 +29,34 @@ public class Rasterer {
      * @return RasterResult
      */
     public static RasterResult rasterizeMap(RasterRequest request) {
-        //For some queries, it may not be possible to find images to cover the entire query box.
-        // This can occur under two scenarios.
-        //
-        //If the browser goes to the edge of the map beyond where data is available. -> ROOT_ULLAT, etc
-        //        if (request.lrlat > ROOT_LRLAT || request.lrlon > ROOT_LRLON || request.ullat < ROOT_ULLAT ||
-        //                request.ullon < ROOT_ULLON) {
-        //            Tile[][] ret = new Tile[1][2];
-        //            ret[0][0] = new Tile(0, 0, 0);
-        //            ret[0][1] = new Tile(0, 1, 0);
-        //            return new RasterResult(ret);
-        //        }
-        //If the query box is so zoomed out that it includes the entire dataset.
-        //In these cases, return what data you do have available.
-        //
-        //You can also imagine that the browser might request a query box for a location that is completely outside
-        //of the Seattle map region. RasterResult will still expect your grid to have data, so you cannot return
-        //a 0-by-0 grid directly. In this case, you can return an arbitrary tile. The user should still correctly
-        //not see anything on their screen, as their query box would be out of the coordinates covered by this
-        //RasterResult.
-
-
-        int leftEdge = (int) ((request.ullon - ROOT_ULLON) / LON_PER_TILE[request.depth]); //x
-        int rightEdge = (int) ((request.lrlon - ROOT_ULLON) / LON_PER_TILE[request.depth]); //x
-        int lowerEdge = (int) ((request.lrlat - ROOT_ULLAT) / LAT_PER_TILE[request.depth]) * (-1); //y
-        int upperEdge = (int) ((request.ullat - ROOT_ULLAT) / LAT_PER_TILE[request.depth]) * (-1); //y
+        // Degenerate viewports and viewports entirely outside the map have nothing to draw.
+        // The negated comparisons also reject NaN coordinates.
+        if (!(request.ullon < request.lrlon) || !(request.lrlat < request.ullat)
+                || request.ullon >= ROOT_LRLON || request.lrlon <= ROOT_ULLON
+                || request.ullat <= ROOT_LRLAT || request.lrlat >= ROOT_ULLAT) {
+            return new RasterResult(null);
+        }
+
+        // Viewports partially outside the map are clamped to the tiles that exist. If the grid
+        // would still exceed MAX_RASTER_TILES, fall back to coarser depths until it fits.
+        int depth = Math.max(0, Math.min(request.depth, MAX_DEPTH));
+        int[] edges = tileEdges(request, depth);
+        while (depth > 0 && (edges[1] - edges[0] + 1) * (edges[3] - edges[2] + 1) > MAX_RASTER_TILES) {
+            depth -= 1;
+            edges = tileEdges(request, depth);
+        }
+        int leftEdge = edges[0];
+        int rightEdge = edges[1];
+        int upperEdge = edges[2];
+        int lowerEdge = edges[3];
 
         //size of 2D array
-        Tile[][] ret = new Tile[Math.abs(lowerEdge - upperEdge) + 1][Math.abs(rightEdge - leftEdge) + 1];
+        Tile[][] ret = new Tile[lowerEdge - upperEdge + 1][rightEdge - leftEdge + 1];
 
         //start from top left, end at bottom right
         for (int i = 0; i < ret.length; i++) {
             for (int j = 0; j < ret[0].length; j++) {
-                Tile t = new Tile(request.depth, leftEdge + j, upperEdge + i);
+                Tile t = new Tile(depth, leftEdge + j, upperEdge + i);
                 ret[i][j] = t;
             }
         }
@@ -69,6 +64,25 @@ public class Rasterer {
         return new RasterResult(ret);
     }
 
+    /**
+     * Returns the left, right, upper and lower tile indices covering the request at the given
+     * depth, clamped to the tiles that exist at that depth.
+     */
+    private static int[] tileEdges(RasterRequest request, int depth) {
+        int maxX = NUM_X_TILES_AT_DEPTH[depth] - 1;
+        int maxY = NUM_Y_TILES_AT_DEPTH[depth] - 1;
+        int leftEdge = clamp(Math.floor((request.ullon - ROOT_ULLON) / LON_PER_TILE[depth]), maxX); //x
+        int rightEdge = clamp(Math.floor((request.lrlon - ROOT_ULLON) / LON_PER_TILE[depth]), maxX); //x
+        int upperEdge = clamp(Math.floor((ROOT_ULLAT - request.ullat) / LAT_PER_TILE[depth]), maxY); //y
+        int lowerEdge = clamp(Math.floor((ROOT_ULLAT - request.lrlat) / LAT_PER_TILE[depth]), maxY); //y
+        return new int[]{leftEdge, rightEdge, upperEdge, lowerEdge};
+    }
+
+    /** Returns the tile index clamped to [0, max]. */
+    private static int clamp(double index, int max) {
+        return (int) Math.max(0, Math.min(index, max));
+    }
+
     public static class Tile {
         public final int depth;
         public final int x;
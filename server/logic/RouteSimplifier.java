@@ -0,0 +1,138 @@
+package huskymaps.server.logic;
+
+import huskymaps.StreetMapGraph;
+import huskymaps.params.Location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static huskymaps.Constants.LAT_PER_TILE;
+import static huskymaps.Constants.LON_PER_TILE;
+import static huskymaps.Constants.NUM_X_TILES_AT_DEPTH;
+import static huskymaps.Constants.ROUTE_SIMPLIFICATION_TOLERANCE_PX;
+import static huskymaps.Constants.TILE_SIZE;
+
+/** Application logic for reducing a route to the nodes that are visible at each raster depth. */
+public class RouteSimplifier {
+
+    /**
+     * Simplifies the route once per raster depth using the Douglas-Peucker algorithm. The
+     * tolerance at each depth is ROUTE_SIMPLIFICATION_TOLERANCE_PX pixels, so nodes that fall
+     * within the same few pixels of the rendered image are dropped.
+     * @param g The graph the route was computed on.
+     * @param route The route as a list of node ids.
+     * @return A list indexed by depth, where each element is the simplified route at that depth.
+     */
+    public static List<List<Long>> simplify(StreetMapGraph g, List<Long> route) {
+        int numDepths = NUM_X_TILES_AT_DEPTH.length;
+        if (route.size() < 3) {
+            return Collections.nCopies(numDepths, List.copyOf(route));
+        }
+        long[] ids = new long[route.size()];
+        double[] lons = new double[ids.length];
+        double[] lats = new double[ids.length];
+        int i = 0;
+        for (long id : route) {
+            Location location = g.location(id);
+            ids[i] = id;
+            lons[i] = location.lon();
+            lats[i] = location.lat();
+            i += 1;
+        }
+
+        // Each depth is simplified from the next finer depth, so the total work shrinks as we
+        // zoom out. The accumulated error stays below twice the per-depth tolerance.
+        List<List<Long>> levels = new ArrayList<>(Collections.nCopies(numDepths, null));
+        int[] kept = new int[ids.length];
+        for (i = 0; i < kept.length; i += 1) {
+            kept[i] = i;
+        }
+        for (int depth = numDepths - 1; depth >= 0; depth -= 1) {
+            double lonPerPixel = LON_PER_TILE[depth] / TILE_SIZE;
+            double latPerPixel = LAT_PER_TILE[depth] / TILE_SIZE;
+            kept = douglasPeucker(lons, lats, kept, lonPerPixel, latPerPixel);
+            List<Long> level = new ArrayList<>(kept.length);
+            for (int index : kept) {
+                level.add(ids[index]);
+            }
+            levels.set(depth, level);
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the subset of the given point indices that must be kept so that no dropped point
+     * is farther than ROUTE_SIMPLIFICATION_TOLERANCE_PX pixels from the simplified line.
+     * Implemented with an explicit stack so that long routes cannot overflow the call stack.
+     */
+    private static int[] douglasPeucker(double[] lons, double[] lats, int[] points,
+                                        double lonPerPixel, double latPerPixel) {
+        int n = points.length;
+        if (n < 3) {
+            return points;
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double ax = lons[points[first]] / lonPerPixel;
+            double ay = lats[points[first]] / latPerPixel;
+            double bx = lons[points[last]] / lonPerPixel;
+            double by = lats[points[last]] / latPerPixel;
+            int farthest = -1;
+            double farthestDistance = ROUTE_SIMPLIFICATION_TOLERANCE_PX;
+            for (int i = first + 1; i < last; i += 1) {
+                double px = lons[points[i]] / lonPerPixel;
+                double py = lats[points[i]] / latPerPixel;
+                double distance = segmentDistance(px, py, ax, ay, bx, by);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest != -1) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) {
+                count += 1;
+            }
+        }
+        int[] result = new int[count];
+        int j = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (keep[i]) {
+                result[j++] = points[i];
+            }
+        }
+        return result;
+    }
+
+    /** Returns the Euclidean distance from point p to the segment from a to b. */
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        }
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return Math.sqrt(cx * cx + cy * cy);
+    }
+}
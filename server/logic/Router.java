@@ -1,18 +1,29 @@
 package huskymaps.server.logic;
 
 import astar.AStarSolver;
-import huskymaps.ContractedShortestPaths;
+import huskymaps.AlternativeRoutes;
 import huskymaps.ContractedStreetMapGraph;
+import huskymaps.HierarchyQuery;
 import huskymaps.StreetMapGraph;
+import huskymaps.TurnAwareShortestPaths;
+import huskymaps.TurnRepair;
+import huskymaps.UpwardGraph;
 import huskymaps.params.Location;
 import huskymaps.params.RouteRequest;
+import huskymaps.params.RouteStats;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+
+import static huskymaps.Constants.ALTERNATIVE_CANDIDATES;
+import static huskymaps.Constants.ALTERNATIVE_LOCAL_OPTIMALITY;
+import static huskymaps.Constants.ALTERNATIVE_MAX_SHARING;
+import static huskymaps.Constants.ALTERNATIVE_MAX_STRETCH;
 
 /** Application logic for the RoutingAPIHandler. */
 public class Router {
+    /** Each worker thread keeps its own alternative route engine, and with it its workspaces. */
+    private static final ThreadLocal<AlternativeRoutes> ALTERNATIVES = new ThreadLocal<>();
 
     /**
      * Overloaded method for shortestPath that has flexibility to specify a solver
@@ -23,9 +34,36 @@ public class Router {
      * @return A list of node id's in the order visited on the shortest path.
      */
     public static List<Long> shortestPath(StreetMapGraph g, RouteRequest request) {
+        return shortestPath(g, request, new RouteStats());
+    }
+
+    /**
+     * Computes the shortest path with A* and records how it was computed. If the graph has turn
+     * restrictions or turn penalties, the search is edge-based so that it can account for them.
+     * @param g The graph to use.
+     * @param request The requested route.
+     * @param stats The statistics to fill in.
+     * @return A list of node id's in the order visited on the shortest path.
+     */
+    public static List<Long> shortestPath(StreetMapGraph g, RouteRequest request, RouteStats stats) {
+        long start = System.nanoTime();
         long src = g.closest(new Location(request.startLat, request.startLon));
         long dest = g.closest(new Location(request.endLat, request.endLon));
-        return new AStarSolver<>(g, src, dest, 20).solution();
+        long snapped = System.nanoTime();
+        if (g.hasTurnCosts()) {
+            return turnAwarePath(g, null, src, dest, stats, start, snapped);
+        }
+        AStarSolver<Long> solver = new AStarSolver<>(g, src, dest, 20);
+        List<Long> path = solver.solution();
+        long end = System.nanoTime();
+
+        stats.solver = "astar";
+        stats.snapMillis = millis(snapped - start);
+        stats.forwardSettled = solver.numStatesExplored();
+        stats.searchMillis = millis(end - snapped);
+        stats.totalMillis = millis(end - start);
+        stats.pathLength = path.size();
+        return path;
     }
 
     /**
@@ -37,30 +75,165 @@ public class Router {
      * @return A list of node id's in the order visited on the shortest path.
      */
     public static List<Long> shortestPath(ContractedStreetMapGraph g, RouteRequest request) {
+        return shortestPath(g, request, new RouteStats());
+    }
+
+    /**
+     * Computes the shortest path on the active contraction hierarchy, with the weights of its
+     * last customization, and records how it was computed. The hierarchy knows nothing of
+     * turns, so the sections of a path around restricted turns are replaced by local edge-based
+     * searches, and every path is found by an edge-based A* search when turn penalties apply.
+     * A repaired route may not be the shortest that obeys the restrictions, but is at most
+     * TURN_REPAIR_MAX_STRETCH longer, or it is replaced by a search of the whole graph.
+     * @param g The graph to use.
+     * @param request The requested route.
+     * @param stats The statistics to fill in.
+     * @return A list of node id's in the order visited on the shortest path, or on a repaired
+     * path if the shortest takes restricted turns.
+     */
+    public static List<Long> shortestPath(ContractedStreetMapGraph g, RouteRequest request, RouteStats stats) {
+        long start = System.nanoTime();
+        UpwardGraph upward = g.upwardGraph();
         long src = g.closest(new Location(request.startLat, request.startLon));
         long dest = g.closest(new Location(request.endLat, request.endLon));
-        ContractedShortestPaths srcPaths = new ContractedShortestPaths(g, src, 20);
-        ContractedShortestPaths destPaths = new ContractedShortestPaths(g, dest, 20);
-        Set<Long> sharedVertices = srcPaths.vertices();
-        sharedVertices.retainAll(destPaths.vertices());
-        if (sharedVertices.isEmpty()) {
+        long snapped = System.nanoTime();
+        if (g.hasTurnPenalties()) {
+            return turnAwarePath(g, upward, src, dest, stats, start, snapped);
+        }
+        int source = upward.rank(src);
+        int target = upward.rank(dest);
+        HierarchyQuery query = BatchRouter.query(upward);
+        double distance = source == UpwardGraph.NONE || target == UpwardGraph.NONE
+                ? Double.POSITIVE_INFINITY
+                : query.run(source, target);
+        long searched = System.nanoTime();
+
+        stats.solver = "contraction";
+        stats.snapMillis = millis(snapped - start);
+        stats.searchMillis = millis(searched - snapped);
+        if (distance == Double.POSITIVE_INFINITY) {
+            stats.totalMillis = millis(searched - start);
+            return List.of();
+        }
+        stats.forwardSettled = query.numForwardSettled();
+        stats.backwardSettled = query.numBackwardSettled();
+        stats.edgesRelaxed = query.numEdgesRelaxed();
+
+        List<Long> path = query.path();
+        long end = System.nanoTime();
+        stats.unpackMillis = millis(end - searched);
+        stats.totalMillis = millis(end - start);
+        stats.pathLength = path.size();
+        if (!g.turnRestrictions().allows(path)) {
+            return repairedPath(g, upward, path, stats, start);
+        }
+        return path;
+    }
+
+    /**
+     * Repairs a path on the hierarchy that takes restricted turns, and records how it was
+     * repaired, and whether the repair had to search the whole graph. Edges are weighed as the hierarchy weighs them, and a customized hierarchy is
+     * searched without a heuristic, as in turnAwarePath.
+     * @param g The graph to use.
+     * @param upward The hierarchy the path was found on.
+     * @param path The path to repair.
+     * @param stats The statistics to fill in. The repair is added to the search before it.
+     * @param start When the route computation started, in nanoseconds.
+     * @return A list of node id's in the order visited on the repaired path.
+     */
+    private static List<Long> repairedPath(ContractedStreetMapGraph g, UpwardGraph upward, List<Long> path,
+                                           RouteStats stats, long start) {
+        long repairStart = System.nanoTime();
+        TurnRepair repair = new TurnRepair(g, path, 20, upward::roadWeight,
+                upward.customized() ? (s, t) -> 0 : g.heuristic());
+        long end = System.nanoTime();
+
+        stats.solver = repair.searchedWholeGraph() ? "contraction+turns" : "contraction+repair";
+        stats.forwardSettled += repair.numStatesExplored();
+        stats.edgesRelaxed += repair.numEdgesRelaxed();
+        stats.searchMillis += millis(end - repairStart);
+        stats.totalMillis = millis(end - start);
+        stats.pathLength = repair.solution().size();
+        return repair.solution();
+    }
+
+    /**
+     * Computes the shortest path between two snapped nodes with an edge-based A* search that
+     * obeys turn restrictions and pays turn penalties, and records how it was computed. Edges
+     * are weighed as the given hierarchy weighs them. The heuristic bounds only the weights the
+     * graph was built with, so a customized hierarchy is searched without one.
+     * @param g The graph to use.
+     * @param upward The hierarchy whose weights to use, or null to use the weights of the edges.
+     * @param src The start node.
+     * @param dest The end node.
+     * @param stats The statistics to fill in.
+     * @param start When the route computation started, in nanoseconds.
+     * @param snapped When the start and end locations were snapped, in nanoseconds.
+     * @return A list of node id's in the order visited on the shortest path.
+     */
+    private static List<Long> turnAwarePath(StreetMapGraph g, UpwardGraph upward, long src, long dest,
+                                            RouteStats stats, long start, long snapped) {
+        long searchStart = System.nanoTime();
+        TurnAwareShortestPaths paths = upward != null && upward.customized()
+                ? new TurnAwareShortestPaths(g, src, dest, 20, upward::roadWeight, (s, t) -> 0)
+                : new TurnAwareShortestPaths(g, src, dest, 20);
+        List<Long> path = paths.solution();
+        long end = System.nanoTime();
+
+        stats.solver = "turns";
+        stats.snapMillis = millis(snapped - start);
+        stats.forwardSettled = paths.numStatesExplored();
+        stats.edgesRelaxed = paths.numEdgesRelaxed();
+        stats.searchMillis = millis(end - searchStart);
+        stats.totalMillis = millis(end - start);
+        stats.pathLength = path.size();
+        return path;
+    }
+
+    /**
+     * Computes alternatives to a route on the contraction hierarchy. Each alternative is at most
+     * ALTERNATIVE_MAX_STRETCH longer than the shortest path, shares at most
+     * ALTERNATIVE_MAX_SHARING of it with the routes before it, and makes no needless detours.
+     * The route itself may differ from the shortest path on the hierarchy, when it was replaced
+     * to obey turn restrictions or two paths are equally short, so that path is an alternative
+     * too unless it is the route.
+     * @param g The graph to use.
+     * @param request The requested route, including how many alternatives to find.
+     * @param route The route returned by shortestPath for the request.
+     * @return The alternatives in order of length, not including the route. There may be fewer
+     * than requested, or none.
+     */
+    public static List<AlternativeRoutes.Route> alternativeRoutes(ContractedStreetMapGraph g, RouteRequest request,
+                                                                  List<Long> route) {
+        UpwardGraph upward = g.upwardGraph();
+        int source = upward.rank(g.closest(new Location(request.startLat, request.startLon)));
+        int target = upward.rank(g.closest(new Location(request.endLat, request.endLon)));
+        if (request.alternatives == 0 || route.isEmpty()
+                || source == UpwardGraph.NONE || target == UpwardGraph.NONE) {
             return List.of();
         }
-        long bestVertex = Long.MIN_VALUE;
-        double bestDistance = Double.POSITIVE_INFINITY;
-        for (long id : sharedVertices) {
-            double thisDistance = srcPaths.distTo(id) + destPaths.distTo(id);
-            if (thisDistance < bestDistance) {
-                bestVertex = id;
-                bestDistance = thisDistance;
+        AlternativeRoutes engine = ALTERNATIVES.get();
+        if (engine == null || engine.graph() != upward) {
+            engine = new AlternativeRoutes(upward);
+            ALTERNATIVES.set(engine);
+        }
+        List<AlternativeRoutes.Route> routes = engine.find(source, target, request.alternatives,
+                ALTERNATIVE_MAX_STRETCH, ALTERNATIVE_MAX_SHARING, ALTERNATIVE_LOCAL_OPTIMALITY,
+                ALTERNATIVE_CANDIDATES);
+        List<AlternativeRoutes.Route> alternatives = new ArrayList<>();
+        for (AlternativeRoutes.Route alternative : routes) {
+            if (alternatives.size() == request.alternatives) {
+                break;
+            }
+            // The hierarchy knows nothing of turns, so drop alternatives that take restricted ones
+            if (!alternative.path().equals(route) && g.turnRestrictions().allows(alternative.path())) {
+                alternatives.add(alternative);
             }
         }
-        List<Long> forward = srcPaths.constructPath(bestVertex);
-        List<Long> backward = destPaths.constructPath(bestVertex);
-        // Remove duplicate bestVertex from backward path
-        backward.remove(backward.size() - 1);
-        Collections.reverse(backward);
-        forward.addAll(backward);
-        return forward;
+        return alternatives;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
     }
 }
@@ -0,0 +1,303 @@
+package huskymaps.server.logic;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import static huskymaps.Constants.IMG_ROOT;
+import static huskymaps.Constants.NUM_X_TILES_AT_DEPTH;
+import static huskymaps.Constants.NUM_Y_TILES_AT_DEPTH;
+import static huskymaps.Constants.TILE_ARCHIVE_PATH;
+
+/**
+ * A single file containing every map tile, read through memory-mapped buffers so that fetching
+ * a tile is an index lookup plus a slice rather than a file open.
+ *
+ * The file starts with a header of MAGIC, VERSION, the number of depths and the number of x
+ * and y tiles at each depth. It is followed by an index entry of (long offset, int length) for
+ * every tile, ordered by depth, then y, then x, and finally the tile images themselves. A length
+ * of 0 marks a missing tile. No tile crosses a SEGMENT_SIZE boundary, so each tile lies entirely
+ * within one mapped segment.
+ */
+public class TileArchive {
+    private static final int MAGIC = 0x484D5441;
+    private static final int VERSION = 1;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final int[] numXTiles;
+    private final int[] numYTiles;
+    private final int[] firstIndex;
+    private final ByteBuffer index;
+    private final ByteBuffer[] segments;
+
+    private TileArchive(int[] numXTiles, int[] numYTiles, ByteBuffer index, ByteBuffer[] segments) {
+        this.numXTiles = numXTiles;
+        this.numYTiles = numYTiles;
+        this.index = index;
+        this.segments = segments;
+        this.firstIndex = new int[numXTiles.length];
+        int total = 0;
+        for (int depth = 0; depth < numXTiles.length; depth += 1) {
+            firstIndex[depth] = total;
+            total += numXTiles[depth] * numYTiles[depth];
+        }
+    }
+
+    /**
+     * Opens the tile archive at the given path.
+     * @param path The archive path.
+     * @return The archive, or null if no archive exists at the path.
+     * @throws IOException if the archive exists but cannot be read.
+     */
+    public static TileArchive open(String path) throws IOException {
+        Path file = Paths.get(path);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3 * Integer.BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " tile archive: " + path);
+            }
+            int numDepths = header.getInt();
+            ByteBuffer dimensions = channel.map(FileChannel.MapMode.READ_ONLY,
+                    3 * Integer.BYTES, 2L * Integer.BYTES * numDepths);
+            int[] numXTiles = new int[numDepths];
+            int[] numYTiles = new int[numDepths];
+            long numTiles = 0;
+            for (int depth = 0; depth < numDepths; depth += 1) {
+                numXTiles[depth] = dimensions.getInt();
+                numYTiles[depth] = dimensions.getInt();
+                numTiles += (long) numXTiles[depth] * numYTiles[depth];
+            }
+            long indexStart = 3L * Integer.BYTES + 2L * Integer.BYTES * numDepths;
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexStart, numTiles * INDEX_ENTRY_BYTES);
+
+            // The mapping stays valid after the channel is closed
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i += 1) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+            return new TileArchive(numXTiles, numYTiles, index, segments);
+        }
+    }
+
+    /**
+     * Opens the tile archive packaged on the classpath, as on Heroku. A resource cannot be mapped,
+     * so it is copied once to a temporary file, which is mapped instead and deleted on exit.
+     * @param name The archive resource name.
+     * @return The archive, or null if no archive exists on the classpath.
+     * @throws IOException if the archive exists but cannot be copied or read.
+     */
+    public static TileArchive openResource(String name) throws IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                return null;
+            }
+            Path file = Files.createTempFile("tiles", ".pack");
+            file.toFile().deleteOnExit();
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return open(file.toString());
+        }
+    }
+
+    /**
+     * Returns the encoded image bytes of the given tile.
+     * @param tile The tile to fetch.
+     * @return A read-only buffer containing the encoded image, or null if the tile is missing.
+     */
+    public ByteBuffer get(Rasterer.Tile tile) {
+        if (tile.depth < 0 || tile.depth >= numXTiles.length
+                || tile.x < 0 || tile.x >= numXTiles[tile.depth]
+                || tile.y < 0 || tile.y >= numYTiles[tile.depth]) {
+            return null;
+        }
+        int entry = (firstIndex[tile.depth] + tile.y * numXTiles[tile.depth] + tile.x) * INDEX_ENTRY_BYTES;
+        long offset = index.getLong(entry);
+        int length = index.getInt(entry + Long.BYTES);
+        if (length == 0) {
+            return null;
+        }
+        ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+        int position = (int) (offset & (SEGMENT_SIZE - 1));
+        segment.position(position).limit(position + length);
+        return segment.slice();
+    }
+
+    /**
+     * Returns the decoded image of the given tile.
+     * @param tile The tile to read.
+     * @return The tile image, or null if the tile is missing.
+     * @throws IOException if the tile could not be decoded.
+     */
+    public BufferedImage read(Rasterer.Tile tile) throws IOException {
+        ByteBuffer bytes = get(tile);
+        if (bytes == null) {
+            return null;
+        }
+        // ImageIO.read would wrap a stream in a cache, by default a temporary file, so the
+        // reader is given a seekable stream over the mapped bytes instead
+        ImageInputStream stream = new ByteBufferImageInputStream(bytes);
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            throw new IOException("Unrecognized image format for tile " + tile);
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            return reader.read(0);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Packs every tile image in the tile directory into a single archive.
+     * @param tileRoot The directory containing d{depth}_x{x}_y{y}.jpg tiles.
+     * @param archivePath The archive to create or overwrite.
+     * @throws IOException if a tile could not be read or the archive could not be written.
+     */
+    public static void pack(String tileRoot, String archivePath) throws IOException {
+        int numDepths = NUM_X_TILES_AT_DEPTH.length;
+        long numTiles = 0;
+        for (int depth = 0; depth < numDepths; depth += 1) {
+            numTiles += (long) NUM_X_TILES_AT_DEPTH[depth] * NUM_Y_TILES_AT_DEPTH[depth];
+        }
+        long indexStart = 3L * Integer.BYTES + 2L * Integer.BYTES * numDepths;
+        long dataStart = indexStart + numTiles * INDEX_ENTRY_BYTES;
+
+        try (RandomAccessFile file = new RandomAccessFile(archivePath, "rw")) {
+            file.setLength(0);
+            // Write the tile data first, then come back to fill in the header and index
+            ByteBuffer index = ByteBuffer.allocate((int) (numTiles * INDEX_ENTRY_BYTES));
+            long offset = dataStart;
+            file.seek(dataStart);
+            OutputStream data = new BufferedOutputStream(new RandomAccessFileOutputStream(file), 1 << 16);
+            for (int depth = 0; depth < numDepths; depth += 1) {
+                for (int y = 0; y < NUM_Y_TILES_AT_DEPTH[depth]; y += 1) {
+                    for (int x = 0; x < NUM_X_TILES_AT_DEPTH[depth]; x += 1) {
+                        Path tilePath = Paths.get(tileRoot, new Rasterer.Tile(depth, x, y).toString());
+                        if (!Files.isRegularFile(tilePath)) {
+                            index.putLong(0).putInt(0);
+                            continue;
+                        }
+                        byte[] bytes = Files.readAllBytes(tilePath);
+                        long segmentEnd = ((offset >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+                        if (offset + bytes.length > segmentEnd) {
+                            data.write(new byte[(int) (segmentEnd - offset)]);
+                            offset = segmentEnd;
+                        }
+                        data.write(bytes);
+                        index.putLong(offset).putInt(bytes.length);
+                        offset += bytes.length;
+                    }
+                }
+            }
+            data.flush();
+
+            file.seek(0);
+            DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new RandomAccessFileOutputStream(file)));
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(numDepths);
+            for (int depth = 0; depth < numDepths; depth += 1) {
+                header.writeInt(NUM_X_TILES_AT_DEPTH[depth]);
+                header.writeInt(NUM_Y_TILES_AT_DEPTH[depth]);
+            }
+            header.write(index.array());
+            header.flush();
+        }
+    }
+
+    /** Packs the tiles in IMG_ROOT into TILE_ARCHIVE_PATH. */
+    public static void main(String[] args) throws IOException {
+        String tileRoot = args.length > 0 ? args[0] : IMG_ROOT;
+        String archivePath = args.length > 1 ? args[1] : TILE_ARCHIVE_PATH;
+        long start = System.nanoTime();
+        pack(tileRoot, archivePath);
+        System.out.println("Packed " + tileRoot + " into " + archivePath + " in "
+                + (System.nanoTime() - start) / 1e9 + " seconds");
+    }
+
+    /** Writes at the current position of a RandomAccessFile without closing it. */
+    private static class RandomAccessFileOutputStream extends OutputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessFileOutputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            file.write(b, off, len);
+        }
+    }
+
+    /**
+     * A seekable image stream over the remaining bytes of a buffer, which reads straight from
+     * the buffer rather than copying it into a cache first.
+     */
+    private static class ByteBufferImageInputStream extends ImageInputStreamImpl {
+        private final ByteBuffer buffer;
+
+        ByteBufferImageInputStream(ByteBuffer buffer) {
+            this.buffer = buffer.slice();
+        }
+
+        @Override
+        public int read() {
+            bitOffset = 0;
+            if (streamPos >= buffer.limit()) {
+                return -1;
+            }
+            int b = buffer.get((int) streamPos) & 0xFF;
+            streamPos += 1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            bitOffset = 0;
+            if (len == 0) {
+                return 0;
+            }
+            if (streamPos >= buffer.limit()) {
+                return -1;
+            }
+            int n = (int) Math.min(len, buffer.limit() - streamPos);
+            buffer.duplicate().position((int) streamPos).get(b, off, n);
+            streamPos += n;
+            return n;
+        }
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package huskymaps.server.logic;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static huskymaps.Constants.HEROKU_DEPLOYMENT;
+import static huskymaps.Constants.IMG_ROOT;
+import static huskymaps.Constants.TILE_ARCHIVE_PATH;
+import static huskymaps.Constants.TILE_CACHE_SIZE;
+
+/** Application logic for loading map tiles, keeping the most recently used tiles decoded in memory. */
+public class TileCache {
+
+    /** The packed tile archive, or null if tiles should be read from individual files. */
+    private static final TileArchive ARCHIVE = openArchive();
+
+    /** Decoded tiles in least-recently-used order. */
+    private static final Map<Rasterer.Tile, BufferedImage> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(TILE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Rasterer.Tile, BufferedImage> eldest) {
+                    return size() > TILE_CACHE_SIZE;
+                }
+            }
+    );
+
+    /**
+     * Returns the decoded image for the given tile, loading it if it is not cached.
+     * @param tile The tile to load.
+     * @return The tile image, or null if the tile could not be loaded.
+     */
+    public static BufferedImage get(Rasterer.Tile tile) {
+        BufferedImage image = CACHE.get(tile);
+        if (image == null) {
+            image = load(tile);
+            if (image != null) {
+                CACHE.put(tile, image);
+            }
+        }
+        return image;
+    }
+
+    /** Returns true if and only if the given tile is already decoded in memory. */
+    public static boolean contains(Rasterer.Tile tile) {
+        return CACHE.containsKey(tile);
+    }
+
+    private static TileArchive openArchive() {
+        try {
+            if (HEROKU_DEPLOYMENT) {
+                return TileArchive.openResource(TILE_ARCHIVE_PATH);
+            }
+            return TileArchive.open(TILE_ARCHIVE_PATH);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static BufferedImage load(Rasterer.Tile tile) {
+        String path = IMG_ROOT + tile;
+        BufferedImage image = null;
+        try {
+            if (ARCHIVE != null) {
+                return ARCHIVE.read(tile);
+            }
+            File in = new File(path);
+            if (!HEROKU_DEPLOYMENT) {
+                image = ImageIO.read(in);
+            } else {
+                image = ImageIO.read(Thread.currentThread().getContextClassLoader().getResource(path));
+            }
+        } catch (IOException | NullPointerException e) {
+            e.printStackTrace();
+        }
+        return image;
+    }
+}
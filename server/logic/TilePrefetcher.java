@@ -0,0 +1,154 @@
+package huskymaps.server.logic;
+
+import huskymaps.params.RasterResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static huskymaps.Constants.NUM_X_TILES_AT_DEPTH;
+import static huskymaps.Constants.NUM_Y_TILES_AT_DEPTH;
+import static huskymaps.Constants.PREFETCH_BACKOFF_MS;
+import static huskymaps.Constants.PREFETCH_MAX_TILES;
+
+/**
+ * Application logic for warming the TileCache with the tiles a user is likely to request next:
+ * a one-tile border around the current viewport, and the same area one depth up and down.
+ * Prefetching runs on a single low-priority thread and waits while any foreground raster
+ * request is in progress, from rastering until its response is written, so it never competes
+ * with the requests users are waiting on.
+ *
+ * The tiles of one viewport are warmed in priority order by one task, at most
+ * PREFETCH_MAX_TILES of them, and a newer viewport supersedes any tiles not yet warmed.
+ */
+public class TilePrefetcher {
+
+    private static final AtomicInteger FOREGROUND_REQUESTS = new AtomicInteger();
+
+    /** Incremented for every viewport, so that tasks for older viewports stop early. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /** Only the newest viewport waits to be prefetched; older waiting ones are discarded. */
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "tile-prefetcher");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy()
+    );
+
+    /** Marks the start of a foreground raster request. Must be paired with foregroundFinished. */
+    public static void foregroundStarted() {
+        FOREGROUND_REQUESTS.incrementAndGet();
+    }
+
+    /** Marks the end of a foreground raster request, once its response has been written. */
+    public static void foregroundFinished() {
+        FOREGROUND_REQUESTS.decrementAndGet();
+    }
+
+    /**
+     * Schedules the tiles surrounding the given result to be loaded into the TileCache.
+     * Any tiles still waiting to be prefetched for a previous viewport are discarded.
+     * @param result The result of the most recent raster request.
+     */
+    public static void prefetch(RasterResult result) {
+        if (result.grid == null) {
+            return;
+        }
+        List<Rasterer.Tile> tiles = candidates(result);
+        long generation = GENERATION.incrementAndGet();
+        EXECUTOR.execute(() -> warm(tiles, generation));
+    }
+
+    /**
+     * Returns the uncached tiles to prefetch around the given result, most likely first and at
+     * most PREFETCH_MAX_TILES of them. Panning is the most common next move, so the border
+     * comes first, then the coarser depth, which has a quarter as many tiles, and then the
+     * finer depth from the center of the viewport outwards.
+     */
+    private static List<Rasterer.Tile> candidates(RasterResult result) {
+        Rasterer.Tile ul = result.grid[0][0];
+        Rasterer.Tile lr = result.grid[result.grid.length - 1][result.grid[0].length - 1];
+        int depth = ul.depth;
+
+        List<Rasterer.Tile> tiles = new ArrayList<>();
+        for (int y = ul.y - 1; y <= lr.y + 1; y += 1) {
+            for (int x = ul.x - 1; x <= lr.x + 1; x += 1) {
+                if (y < ul.y || y > lr.y || x < ul.x || x > lr.x) {
+                    addIfUseful(tiles, depth, x, y);
+                }
+            }
+        }
+        if (depth > 0) {
+            addArea(tiles, depth - 1, ul.x / 2, ul.y / 2, lr.x / 2, lr.y / 2);
+        }
+        if (depth < NUM_X_TILES_AT_DEPTH.length - 1 && tiles.size() < PREFETCH_MAX_TILES) {
+            List<Rasterer.Tile> finer = new ArrayList<>();
+            addArea(finer, depth + 1, ul.x * 2, ul.y * 2, lr.x * 2 + 1, lr.y * 2 + 1);
+            // Twice the center of the viewport in finer tiles, so that distances stay integers
+            int cx = 2 * (ul.x + lr.x + 1);
+            int cy = 2 * (ul.y + lr.y + 1);
+            finer.sort(Comparator.comparingInt(t -> distanceSquared(2 * t.x + 1 - cx, 2 * t.y + 1 - cy)));
+            tiles.addAll(finer);
+        }
+        if (tiles.size() > PREFETCH_MAX_TILES) {
+            return new ArrayList<>(tiles.subList(0, PREFETCH_MAX_TILES));
+        }
+        return tiles;
+    }
+
+    private static int distanceSquared(int dx, int dy) {
+        return dx * dx + dy * dy;
+    }
+
+    private static void addArea(List<Rasterer.Tile> tiles, int depth, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y <= y1; y += 1) {
+            for (int x = x0; x <= x1; x += 1) {
+                addIfUseful(tiles, depth, x, y);
+            }
+        }
+    }
+
+    /** Adds the tile if it exists and is not already cached. */
+    private static void addIfUseful(List<Rasterer.Tile> tiles, int depth, int x, int y) {
+        if (x >= 0 && y >= 0 && x < NUM_X_TILES_AT_DEPTH[depth] && y < NUM_Y_TILES_AT_DEPTH[depth]) {
+            Rasterer.Tile tile = new Rasterer.Tile(depth, x, y);
+            if (!TileCache.contains(tile)) {
+                tiles.add(tile);
+            }
+        }
+    }
+
+    /**
+     * Loads the tiles into the cache in order, each once no foreground request is running,
+     * until they are done or a newer viewport is prefetched.
+     */
+    private static void warm(List<Rasterer.Tile> tiles, long generation) {
+        for (Rasterer.Tile tile : tiles) {
+            try {
+                while (FOREGROUND_REQUESTS.get() > 0) {
+                    Thread.sleep(PREFETCH_BACKOFF_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (GENERATION.get() != generation) {
+                return;
+            }
+            if (!TileCache.contains(tile)) {
+                TileCache.get(tile);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package huskymaps.tests;
+
+import astar.WeightedEdge;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.StreetMapGraph;
+import huskymaps.WeightedShortcut;
+import huskymaps.params.RouteRequest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.GZIPOutputStream;
+
+import static huskymaps.Constants.BASE_DIR_PATH;
+
+/** Graphs and reference computations shared by the tests. Each graph is loaded only once. */
+public class GraphFixtures {
+    public static final String OSM_DB_PATH_TINY = BASE_DIR_PATH + "tiny.osm.gz";
+    /** Nodes spread across the tiny graph, for tests that compare every pair. */
+    public static final List<Long> TINY_NODES = List.of(11L, 22L, 41L, 46L, 55L, 63L, 66L);
+    private static ContractedStreetMapGraph tinyGraph;
+
+    /**
+     * Returns the contracted tiny graph, shared by every test. Tests that customize it must
+     * restore its weights before they return.
+     */
+    public static synchronized ContractedStreetMapGraph tinyGraph() {
+        if (tinyGraph == null) {
+            tinyGraph = new ContractedStreetMapGraph(OSM_DB_PATH_TINY);
+        }
+        return tinyGraph;
+    }
+
+    /** Returns a request for the route between two nodes of the graph. */
+    public static RouteRequest request(StreetMapGraph g, long from, long to) {
+        return RouteRequest.from(Map.of(
+                "start_lat", g.location(from).lat(),
+                "start_lon", g.location(from).lon(),
+                "end_lat", g.location(to).lat(),
+                "end_lon", g.location(to).lon()
+        ));
+    }
+
+    /** Returns the great-circle length of the path of node ids on the graph. */
+    public static double length(StreetMapGraph g, List<Long> path) {
+        double distance = 0;
+        for (int i = 1; i < path.size(); i += 1) {
+            distance += g.location(path.get(i - 1)).greatCircleDistance(g.location(path.get(i)));
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the distance from the source to every node it reaches, by Dijkstra's algorithm
+     * over the original edges of the graph, ignoring any shortcuts.
+     */
+    public static Map<Long, Double> dijkstra(StreetMapGraph g, long source) {
+        return dijkstra(g, source, WeightedEdge::weight);
+    }
+
+    /**
+     * Returns the distance from the source to every node it reaches, by Dijkstra's algorithm
+     * over the original edges of the graph weighted by the given function, ignoring any
+     * shortcuts and any edges of infinite weight.
+     */
+    public static Map<Long, Double> dijkstra(StreetMapGraph g, long source,
+                                             ToDoubleFunction<WeightedEdge<Long>> weights) {
+        Map<Long, Double> distTo = new HashMap<>();
+        PriorityQueue<Map.Entry<Long, Double>> pq = new PriorityQueue<>(Map.Entry.comparingByValue());
+        distTo.put(source, 0.0);
+        pq.add(Map.entry(source, 0.0));
+        while (!pq.isEmpty()) {
+            Map.Entry<Long, Double> entry = pq.remove();
+            long v = entry.getKey();
+            if (entry.getValue() > distTo.get(v)) {
+                continue;
+            }
+            for (WeightedEdge<Long> e : g.neighbors(v)) {
+                if (e instanceof WeightedShortcut) {
+                    continue;
+                }
+                double weight = weights.applyAsDouble(e);
+                if (weight == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double distance = entry.getValue() + weight;
+                if (distance < distTo.getOrDefault(e.to(), Double.POSITIVE_INFINITY)) {
+                    distTo.put(e.to(), distance);
+                    pq.add(Map.entry(e.to(), distance));
+                }
+            }
+        }
+        return distTo;
+    }
+
+    /**
+     * Returns a grid of two-way streets with a lake cut out of its middle, so that routes across
+     * it go around one side or the other. The nodes are moved a little at random so that no two
+     * routes are equally short. The node in row r and column c has id lakeGridId(n, r, c).
+     */
+    public static Osm lakeGrid(int n) {
+        Osm osm = new Osm();
+        Random random = new Random(373);
+        for (int r = 0; r < n; r += 1) {
+            for (int c = 0; c < n; c += 1) {
+                osm.node(lakeGridId(n, r, c), 47.55 + 0.15 * r / n + 0.001 * random.nextDouble(),
+                        -122.4 + 0.2 * c / n + 0.001 * random.nextDouble());
+            }
+        }
+        long way = 1;
+        for (int r = 0; r < n; r += 1) {
+            for (int c = 0; c < n; c += 1) {
+                if (!inLake(n, r, c) && c + 1 < n && !inLake(n, r, c + 1)) {
+                    osm.way(way++, List.of(lakeGridId(n, r, c), lakeGridId(n, r, c + 1)),
+                            "highway", "residential");
+                }
+                if (!inLake(n, r, c) && r + 1 < n && !inLake(n, r + 1, c)) {
+                    osm.way(way++, List.of(lakeGridId(n, r, c), lakeGridId(n, r + 1, c)),
+                            "highway", "residential");
+                }
+            }
+        }
+        return osm;
+    }
+
+    /** Returns the id of the node in row r and column c of the lake grid of side n. */
+    public static long lakeGridId(int n, int r, int c) {
+        return 1000 + r * n + c;
+    }
+
+    /** Returns whether row r and column c of the lake grid of side n are under the lake. */
+    public static boolean inLake(int n, int r, int c) {
+        return n / 5 <= r && r < 4 * n / 5 && n / 4 <= c && c < 3 * n / 4;
+    }
+
+    /**
+     * Builds a small OpenStreetMap extract for a test, so that the graph it loads into has
+     * exactly the nodes, ways and relations the test is about.
+     */
+    public static class Osm {
+        private final StringBuilder xml = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\">\n");
+
+        /** Adds a node at the given location. */
+        public Osm node(long id, double lat, double lon) {
+            xml.append(String.format(Locale.ROOT, "<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>%n",
+                    id, lat, lon));
+            return this;
+        }
+
+        /**
+         * Adds a way through the given nodes.
+         * @param tags Alternating keys and values, such as "highway", "residential".
+         */
+        public Osm way(long id, List<Long> refs, String... tags) {
+            xml.append(String.format("<way id=\"%d\">", id));
+            for (long ref : refs) {
+                xml.append(String.format("<nd ref=\"%d\"/>", ref));
+            }
+            appendTags(tags);
+            xml.append(String.format("</way>%n"));
+            return this;
+        }
+
+        /**
+         * Adds a turn restriction from one way through a node to another.
+         * @param tags Alternating keys and values, such as "restriction", "no_left_turn".
+         */
+        public Osm restriction(long id, long fromWay, long viaNode, long toWay, String... tags) {
+            xml.append(String.format("<relation id=\"%d\">", id))
+                    .append(String.format("<member type=\"way\" ref=\"%d\" role=\"from\"/>", fromWay))
+                    .append(String.format("<member type=\"node\" ref=\"%d\" role=\"via\"/>", viaNode))
+                    .append(String.format("<member type=\"way\" ref=\"%d\" role=\"to\"/>", toWay));
+            appendTags("type", "restriction");
+            appendTags(tags);
+            xml.append(String.format("</relation>%n"));
+            return this;
+        }
+
+        /** Writes the extract to a temporary gzipped file, as the graphs read it, and returns its path. */
+        public String write() {
+            try {
+                File file = File.createTempFile("fixture", ".osm.gz");
+                file.deleteOnExit();
+                try (Writer out = new OutputStreamWriter(
+                        new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+                    out.write(xml.toString());
+                    out.write("</osm>\n");
+                }
+                return file.getPath();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Returns the extract loaded into a graph. */
+        public StreetMapGraph graph() {
+            return new StreetMapGraph(write());
+        }
+
+        /** Returns the extract loaded into a contracted graph. */
+        public ContractedStreetMapGraph contractedGraph() {
+            return new ContractedStreetMapGraph(write());
+        }
+
+        private void appendTags(String... tags) {
+            for (int i = 0; i + 1 < tags.length; i += 2) {
+                xml.append(String.format("<tag k=\"%s\" v=\"%s\"/>", tags[i], tags[i + 1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package huskymaps.tests;
+
+import huskymaps.AlternativeRoutes;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.UpwardGraph;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestAlternativeRoutes {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    /** The side of the lake grid, whose routes across the lake go around either side of it. */
+    private static final int N = 30;
+    private static ContractedStreetMapGraph lakeGraph;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @BeforeClass
+    public static void setUpLake() {
+        // Dead ends from nodes 1 and 2 lead to the west and east shores, so every route shares them
+        double lat = 47.55 + 0.15 * (N / 2) / N;
+        long west = GraphFixtures.lakeGridId(N, N / 2, 0);
+        long east = GraphFixtures.lakeGridId(N, N / 2, N - 1);
+        lakeGraph = GraphFixtures.lakeGrid(N)
+                .node(1, lat, -122.4 - 0.6 / N)
+                .node(2, lat, -122.2 + 0.6 / N)
+                .way(100001, List.of(1L, west), "highway", "residential")
+                .way(100002, List.of(east, 2L), "highway", "residential")
+                .contractedGraph();
+    }
+
+    @Test
+    public void testRoutesAreBoundedAndDistinct() {
+        UpwardGraph upward = tinyGraph.upwardGraph();
+        AlternativeRoutes engine = new AlternativeRoutes(upward);
+        double[][] matrix = tinyGraph.distanceMatrix(NODES, NODES);
+        for (int i = 0; i < NODES.size(); i += 1) {
+            for (int j = 0; j < NODES.size(); j += 1) {
+                List<AlternativeRoutes.Route> routes = engine.find(upward.rank(NODES.get(i)),
+                        upward.rank(NODES.get(j)), 3, 0.25, 0.8, 0.25, 32);
+                if (matrix[i][j] == Double.POSITIVE_INFINITY) {
+                    assertTrue(routes.isEmpty());
+                    continue;
+                }
+                assertEquals(matrix[i][j], routes.get(0).distance(), 1e-9);
+                for (int k = 0; k < routes.size(); k += 1) {
+                    List<Long> path = routes.get(k).path();
+                    assertEquals(NODES.get(i), path.get(0));
+                    assertEquals(NODES.get(j), path.get(path.size() - 1));
+                    assertTrue(routes.get(k).distance() <= 1.25 * matrix[i][j] + 1e-9);
+                    for (int l = 0; l < k; l += 1) {
+                        assertTrue(!path.equals(routes.get(l).path()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAlternativeAroundTheLake() {
+        UpwardGraph upward = lakeGraph.upwardGraph();
+        AlternativeRoutes engine = new AlternativeRoutes(upward);
+        List<AlternativeRoutes.Route> routes = engine.find(upward.rank(1), upward.rank(2), 3,
+                0.25, 0.8, 0.25, 32);
+        assertTrue("No alternative around the lake", routes.size() >= 2);
+        double shortest = routes.get(0).distance();
+        assertEquals(GraphFixtures.dijkstra(lakeGraph, 1).get(2L), shortest, 1e-9);
+        // The shortest route goes around one side of the lake and the first alternative the other
+        assertNotEquals(northOfLake(routes.get(0).path()), northOfLake(routes.get(1).path()));
+        for (int k = 1; k < routes.size(); k += 1) {
+            List<Long> path = routes.get(k).path();
+            assertTrue(routes.get(k).distance() <= 1.25 * shortest + 1e-9);
+            assertTrue(sharedLength(path, routes.subList(0, k)) <= 0.8 * shortest + 1e-9);
+            // Both dead ends are shared, so the alternative shares something with the shortest route
+            assertTrue(sharedLength(path, routes.subList(0, k)) > 0);
+        }
+    }
+
+    @Test
+    public void testSharingRejects() {
+        UpwardGraph upward = lakeGraph.upwardGraph();
+        AlternativeRoutes engine = new AlternativeRoutes(upward);
+        List<AlternativeRoutes.Route> routes = engine.find(upward.rank(1), upward.rank(2), 3,
+                0.25, 0.8, 0.25, 32);
+        double shared = sharedLength(routes.get(1).path(), routes.subList(0, 1));
+        // Allowing less sharing than the dead ends alone rules out every alternative
+        double maxSharing = 0.5 * shared / routes.get(0).distance();
+        assertEquals(1, engine.find(upward.rank(1), upward.rank(2), 3, 0.25, maxSharing, 0.25, 32).size());
+    }
+
+    @Test
+    public void testLocalOptimalityRejects() {
+        UpwardGraph upward = lakeGraph.upwardGraph();
+        AlternativeRoutes engine = new AlternativeRoutes(upward);
+        // When the whole route must be a shortest path, only the shortest route is
+        List<AlternativeRoutes.Route> routes = engine.find(upward.rank(1), upward.rank(2), 3,
+                0.25, 0.8, 1.0, 32);
+        assertEquals(1, routes.size());
+    }
+
+    /** Returns whether the path crosses the middle column of the lake grid north of the lake. */
+    private static boolean northOfLake(List<Long> path) {
+        for (long id : path) {
+            long index = id - GraphFixtures.lakeGridId(N, 0, 0);
+            if (id > 2 && index % N == N / 2) {
+                return index / N >= N / 2;
+            }
+        }
+        throw new AssertionError("The path does not cross the lake grid");
+    }
+
+    /** Returns the length of the edges of the path that the given routes also take. */
+    private static double sharedLength(List<Long> path, List<AlternativeRoutes.Route> routes) {
+        Set<List<Long>> edges = new HashSet<>();
+        for (AlternativeRoutes.Route route : routes) {
+            for (int i = 0; i + 1 < route.path().size(); i += 1) {
+                edges.add(List.of(route.path().get(i), route.path().get(i + 1)));
+            }
+        }
+        double shared = 0;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            if (edges.contains(List.of(path.get(i), path.get(i + 1)))) {
+                shared += GraphFixtures.length(lakeGraph, path.subList(i, i + 2));
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,83 @@
+package huskymaps.tests;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.params.BatchRouteRequest;
+import huskymaps.params.BatchRouteResult;
+import huskymaps.params.Location;
+import huskymaps.params.RouteRequest;
+import huskymaps.server.logic.BatchRouter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestBatchRouter {
+    private ContractedStreetMapGraph tinyGraph;
+
+    private static final List<RouteRequest> REQUESTS = List.of(
+            request(47.55, -122.45, 47.75, -122.2),
+            request(47.55, -122.45, 47.5, -122.5),
+            request(47.5, -122.3, 47.75, -122.3),
+            request(47.75, -122.2, 47.7, -122.25)
+    );
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testPathsAreShortest() {
+        List<RouteRequest> requests = new ArrayList<>(REQUESTS);
+        for (long from : GraphFixtures.TINY_NODES) {
+            for (long to : GraphFixtures.TINY_NODES) {
+                requests.add(GraphFixtures.request(tinyGraph, from, to));
+            }
+        }
+        BatchRouteResult result = BatchRouter.route(tinyGraph, new BatchRouteRequest(requests, true));
+        for (int i = 0; i < requests.size(); i += 1) {
+            RouteRequest request = requests.get(i);
+            long from = tinyGraph.closest(new Location(request.startLat, request.startLon));
+            long to = tinyGraph.closest(new Location(request.endLat, request.endLon));
+            List<Long> path = new ArrayList<>();
+            for (long id : result.paths[i]) {
+                path.add(id);
+            }
+            Double expected = GraphFixtures.dijkstra(tinyGraph, from).get(to);
+            if (expected == null) {
+                assertEquals(BatchRouteResult.UNREACHABLE, result.distances[i], 0);
+                assertEquals(List.of(), path);
+                continue;
+            }
+            assertEquals("Batch distance " + i + " is incorrect.", expected, result.distances[i], 1e-9);
+            assertEquals(from, (long) path.get(0));
+            assertEquals(to, (long) path.get(path.size() - 1));
+            assertEquals("Batch path " + i + " is incorrect.", expected, GraphFixtures.length(tinyGraph, path), 1e-9);
+        }
+    }
+
+    @Test
+    public void testDistancesOnly() {
+        BatchRouteResult withPaths = BatchRouter.route(tinyGraph, new BatchRouteRequest(REQUESTS, true));
+        BatchRouteResult withoutPaths = BatchRouter.route(tinyGraph, new BatchRouteRequest(REQUESTS, false));
+        assertNull(withoutPaths.paths);
+        for (int i = 0; i < REQUESTS.size(); i += 1) {
+            assertEquals(withPaths.distances[i], withoutPaths.distances[i], 1e-9);
+        }
+    }
+
+    private static RouteRequest request(double startLat, double startLon, double endLat, double endLon) {
+        return RouteRequest.from(Map.of(
+                "start_lat", startLat,
+                "start_lon", startLon,
+                "end_lat", endLat,
+                "end_lon", endLon
+        ));
+    }
+}
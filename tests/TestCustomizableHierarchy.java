@@ -0,0 +1,85 @@
+package huskymaps.tests;
+
+import astar.WeightedEdge;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.WeightMetric;
+import huskymaps.server.logic.Router;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCustomizableHierarchy {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testCustomizeKeepsDistances() {
+        double[][] expected = tinyGraph.distanceMatrix(NODES, NODES);
+        tinyGraph.customize(WeightMetric.DISTANCE);
+        double[][] actual = tinyGraph.distanceMatrix(NODES, NODES);
+        for (int i = 0; i < NODES.size(); i += 1) {
+            assertArrayEquals(expected[i], actual[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void testCustomizeClosedRoads() {
+        ToDoubleFunction<WeightedEdge<Long>> closed = closing(41L);
+        tinyGraph.customize(closed);
+        try {
+            double[][] actual = tinyGraph.distanceMatrix(NODES, NODES);
+            for (int i = 0; i < NODES.size(); i += 1) {
+                Map<Long, Double> expected = GraphFixtures.dijkstra(tinyGraph, NODES.get(i), closed);
+                for (int j = 0; j < NODES.size(); j += 1) {
+                    double distance = expected.getOrDefault(NODES.get(j), Double.POSITIVE_INFINITY);
+                    assertEquals(NODES.get(i) + " to " + NODES.get(j), distance, actual[i][j], 1e-9);
+                }
+            }
+        } finally {
+            tinyGraph.customize(WeightMetric.DISTANCE);
+        }
+    }
+
+    @Test
+    public void testRoutesAvoidClosedRoads() {
+        long from = NODES.get(0);
+        long to = NODES.get(NODES.size() - 1);
+        List<Long> route = Router.shortestPath(tinyGraph, GraphFixtures.request(tinyGraph, from, to));
+        long closedNode = route.get(route.size() / 2);
+        ToDoubleFunction<WeightedEdge<Long>> closed = closing(closedNode);
+        long generation = tinyGraph.hierarchyGeneration();
+        tinyGraph.customize(closed);
+        try {
+            assertTrue(tinyGraph.hierarchyGeneration() > generation);
+            route = Router.shortestPath(tinyGraph, GraphFixtures.request(tinyGraph, from, to));
+            Double expected = GraphFixtures.dijkstra(tinyGraph, from, closed).get(to);
+            if (expected == null) {
+                assertTrue(route.isEmpty());
+            } else {
+                assertFalse(route.contains(closedNode));
+                assertEquals(expected, GraphFixtures.length(tinyGraph, route), 1e-9);
+            }
+        } finally {
+            tinyGraph.customize(WeightMetric.DISTANCE);
+        }
+    }
+
+    /** Returns the weights of the edges with every edge at the given node closed. */
+    private static ToDoubleFunction<WeightedEdge<Long>> closing(long node) {
+        return e -> e.from() == node || e.to() == node ? Double.POSITIVE_INFINITY : e.weight();
+    }
+}
@@ -0,0 +1,51 @@
+package huskymaps.tests;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.params.Location;
+import huskymaps.params.RouteRequest;
+import huskymaps.server.logic.Router;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestDistanceMatrix {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testMatchesRouter() {
+        double[][] matrix = tinyGraph.distanceMatrix(NODES, NODES);
+        for (int i = 0; i < NODES.size(); i += 1) {
+            for (int j = 0; j < NODES.size(); j += 1) {
+                Location start = tinyGraph.location(NODES.get(i));
+                Location end = tinyGraph.location(NODES.get(j));
+                List<Long> path = Router.shortestPath(tinyGraph, RouteRequest.from(Map.of(
+                        "start_lat", start.lat(),
+                        "start_lon", start.lon(),
+                        "end_lat", end.lat(),
+                        "end_lon", end.lon()
+                )));
+                assertEquals("Distance from " + NODES.get(i) + " to " + NODES.get(j) + " is incorrect.",
+                        GraphFixtures.length(tinyGraph, path), matrix[i][j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRectangular() {
+        double[][] matrix = tinyGraph.distanceMatrix(NODES.subList(0, 2), NODES);
+        assertEquals(2, matrix.length);
+        assertEquals(NODES.size(), matrix[0].length);
+        assertEquals(0, matrix[1][1], 1e-9);
+    }
+}
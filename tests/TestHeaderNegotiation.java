@@ -0,0 +1,144 @@
+package huskymaps.tests;
+
+import huskymaps.StreetMapGraph;
+import huskymaps.server.handler.HeaderNegotiation;
+import huskymaps.server.handler.JsonOutput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestHeaderNegotiation {
+
+    @Test
+    public void testContentEncoding() {
+        assertNull(HeaderNegotiation.contentEncoding(null));
+        assertNull(HeaderNegotiation.contentEncoding("identity"));
+        assertEquals("gzip", HeaderNegotiation.contentEncoding("gzip, deflate, br"));
+        assertEquals("gzip", HeaderNegotiation.contentEncoding("deflate, x-gzip"));
+        assertEquals("deflate", HeaderNegotiation.contentEncoding("deflate"));
+        assertEquals("gzip", HeaderNegotiation.contentEncoding("*"));
+    }
+
+    @Test
+    public void testRefusedEncodings() {
+        assertEquals("deflate", HeaderNegotiation.contentEncoding("gzip;q=0, deflate;q=0.5"));
+        assertNull(HeaderNegotiation.contentEncoding("gzip; q=0"));
+        // An explicit refusal overrides the wildcard
+        assertEquals("deflate", HeaderNegotiation.contentEncoding("gzip;q=0, *"));
+        assertNull(HeaderNegotiation.contentEncoding("*;q=0"));
+        assertNull(HeaderNegotiation.contentEncoding("gzip;q=zero"));
+    }
+
+    @Test
+    public void testEtags() {
+        String etag = HeaderNegotiation.etagOf("v1", "University", "true");
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, HeaderNegotiation.etagOf("v1", "University", "true"));
+        assertNotEquals(etag, HeaderNegotiation.etagOf("v2", "University", "true"));
+        assertNotEquals(HeaderNegotiation.etagOf("ab", "c"), HeaderNegotiation.etagOf("a", "bc"));
+    }
+
+    @Test
+    public void testEtagsDifferByEncoding() {
+        String etag = HeaderNegotiation.etagOf("v1", "University", "true");
+        assertEquals(etag, HeaderNegotiation.etagWithEncoding(etag, null));
+        String gzip = HeaderNegotiation.etagWithEncoding(etag, "gzip");
+        String deflate = HeaderNegotiation.etagWithEncoding(etag, "deflate");
+        assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzip);
+        assertNotEquals(etag, gzip);
+        assertNotEquals(gzip, deflate);
+        assertFalse(HeaderNegotiation.notModified(etag, gzip));
+        assertTrue(HeaderNegotiation.notModified(gzip, gzip));
+    }
+
+    @Test
+    public void testGraphVersionFollowsData() {
+        GraphFixtures.Osm osm = new GraphFixtures.Osm()
+                .node(1, 47.6, -122.3)
+                .node(2, 47.601, -122.3)
+                .way(1, List.of(1L, 2L), "highway", "residential");
+        // The version comes from the bytes read, not from the file they were read from
+        StreetMapGraph g = osm.graph();
+        assertEquals(g.version(), osm.graph().version());
+        osm.node(3, 47.602, -122.3);
+        assertNotEquals(g.version(), osm.graph().version());
+    }
+
+    @Test
+    public void testNotModified() {
+        String etag = HeaderNegotiation.etagOf("v1", "University");
+        assertFalse(HeaderNegotiation.notModified(null, etag));
+        assertTrue(HeaderNegotiation.notModified(etag, etag));
+        assertTrue(HeaderNegotiation.notModified("W/" + etag, etag));
+        assertTrue(HeaderNegotiation.notModified("\"other\", " + etag, etag));
+        assertTrue(HeaderNegotiation.notModified("*", etag));
+        assertFalse(HeaderNegotiation.notModified(HeaderNegotiation.etagOf("v2", "University"), etag));
+    }
+
+    @Test
+    public void testCompressedOutput() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i += 1) {
+            sb.append("[\"University Way NE\",").append(i).append("],");
+        }
+        String text = sb.toString();
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            JsonOutput out = JsonOutput.to(bytes, encoding);
+            out.write(text);
+            out.finish();
+            out.release();
+            InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+            in = encoding.equals("gzip") ? new GZIPInputStream(in) : new InflaterInputStream(in);
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            assertTrue(bytes.size() < text.length() / 4);
+        }
+    }
+
+    @Test
+    public void testReleaseAfterFailedWrite() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        OutputStream client = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                if (closed.get()) {
+                    throw new IOException("Client went away");
+                }
+            }
+        };
+        JsonOutput out = JsonOutput.to(client, "gzip");
+        closed.set(true);
+        boolean failed = false;
+        try {
+            out.write(new char[1 << 17]);
+            out.finish();
+        } catch (IOException e) {
+            failed = true;
+        } finally {
+            out.release();
+        }
+        assertTrue(failed);
+        // The writer of this thread is usable again for the next response
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        out = JsonOutput.to(bytes, null);
+        out.write("{}");
+        out.finish();
+        assertEquals("{}", bytes.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package huskymaps.tests;
+
+import huskymaps.server.handler.JsonOutput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TestJsonOutput {
+    private static final String GRINNING_FACE = "😀";
+
+    /** Writes the text in chunks of the given size and returns the bytes written. */
+    private static byte[] write(String text, int chunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonOutput out = JsonOutput.to(bytes, null);
+        for (int i = 0; i < text.length(); i += chunk) {
+            out.write(text, i, Math.min(chunk, text.length() - i));
+        }
+        out.finish();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testNonBmpCharacters() throws IOException {
+        String text = "a" + GRINNING_FACE + "é中" + GRINNING_FACE;
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), write(text, text.length()));
+        // A pair split across two writes is still encoded as one character
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), write(text, 1));
+    }
+
+    @Test
+    public void testLoneSurrogates() throws IOException {
+        String[] texts = {"a\uD83Db", "a\uDE00b", "\uDE00\uD83D", "end\uD83D", "\uD83D😀"};
+        for (String text : texts) {
+            // Both replace each unpaired surrogate with '?'
+            assertArrayEquals(text, text.getBytes(StandardCharsets.UTF_8), write(text, 1));
+        }
+    }
+
+    @Test
+    public void testBufferBoundaries() throws IOException {
+        // Mixed widths place characters of every length across the 64 KB buffer boundary
+        String[] alphabet = {"a", "é", "中", GRINNING_FACE};
+        Random random = new Random(373);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 3 * (1 << 16)) {
+            sb.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        String text = sb.toString();
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        for (int chunk : new int[]{1, 7, 4096, text.length()}) {
+            assertArrayEquals(expected, write(text, chunk));
+        }
+    }
+
+    @Test
+    public void testRawBytesBetweenCharacters() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonOutput out = JsonOutput.to(bytes, null);
+        byte[] raw = new byte[(1 << 16) + 3];
+        new Random(373).nextBytes(raw);
+        out.write("{\"é\":\"");
+        out.bytes().write(raw);
+        out.write("\"}");
+        out.finish();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write("{\"é\":\"".getBytes(StandardCharsets.UTF_8));
+        expected.write(raw);
+        expected.write("\"}".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toByteArray(), bytes.toByteArray());
+    }
+}
@@ -0,0 +1,63 @@
+package huskymaps.tests;
+
+import astar.AStarSolver;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.LandmarkHeuristic;
+import huskymaps.StreetMapGraph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLandmarkHeuristic {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    /** The side of the lake grid, whose middle is a lake that routes across it must go around. */
+    private static final int N = 30;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testNeverOverestimates() {
+        LandmarkHeuristic heuristic = new LandmarkHeuristic(tinyGraph, 4);
+        double[][] matrix = tinyGraph.distanceMatrix(NODES, NODES);
+        for (int i = 0; i < NODES.size(); i += 1) {
+            for (int j = 0; j < NODES.size(); j += 1) {
+                double estimate = heuristic.estimate(NODES.get(i), NODES.get(j));
+                assertTrue("Estimate from " + NODES.get(i) + " to " + NODES.get(j) + " is too large.",
+                        estimate <= matrix[i][j] + 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testSameRoutesWithFewerSettled() {
+        StreetMapGraph g = GraphFixtures.lakeGrid(N).graph();
+        LandmarkHeuristic landmarks = new LandmarkHeuristic(g, 16);
+        int greatCircleSettled = 0;
+        int landmarkSettled = 0;
+        // From the west shore to the east shore, straight across the lake
+        for (int r = N / 4; r < 3 * N / 4; r += 1) {
+            long src = GraphFixtures.lakeGridId(N, r, 0);
+            long dest = GraphFixtures.lakeGridId(N, N - 1 - r, N - 1);
+            g.setHeuristic(g::greatCircleEstimate);
+            AStarSolver<Long> greatCircle = new AStarSolver<>(g, src, dest, 20);
+            g.setHeuristic(landmarks);
+            AStarSolver<Long> alt = new AStarSolver<>(g, src, dest, 20);
+
+            assertEquals(greatCircle.solution(), alt.solution());
+            assertEquals(greatCircle.solutionWeight(), alt.solutionWeight(), 1e-9);
+            greatCircleSettled += greatCircle.numStatesExplored();
+            landmarkSettled += alt.numStatesExplored();
+        }
+        assertTrue("ALT settled " + landmarkSettled + " nodes, the great-circle distance "
+                + greatCircleSettled, landmarkSettled < greatCircleSettled);
+    }
+}
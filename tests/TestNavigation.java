@@ -0,0 +1,76 @@
+package huskymaps.tests;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.server.logic.Navigation;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestNavigation {
+    private static ContractedStreetMapGraph streets;
+    private ContractedStreetMapGraph tinyGraph;
+
+    /**
+     * Builds a route east along Main Street through nodes 1 to 3, north along Pine Street to
+     * node 5, bearing slightly right along Oak Avenue to node 6, and turning right onto Elm
+     * Street to node 7.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        streets = new GraphFixtures.Osm()
+                .node(1, 47.600, -122.330)
+                .node(2, 47.600, -122.329)
+                .node(3, 47.600, -122.328)
+                .node(4, 47.601, -122.328)
+                .node(5, 47.602, -122.328)
+                .node(6, 47.603, -122.32731)
+                .node(7, 47.60258, -122.32597)
+                .way(1, List.of(1L, 2L, 3L), "highway", "residential", "name", "Main Street")
+                .way(2, List.of(3L, 4L, 5L), "highway", "residential", "name", "Pine Street")
+                .way(3, List.of(5L, 6L), "highway", "residential", "name", "Oak Avenue")
+                .way(4, List.of(6L, 7L), "highway", "residential", "name", "Elm Street")
+                .contractedGraph();
+    }
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testDirections() {
+        List<Navigation.Step> steps = Navigation.routeDirections(tinyGraph, List.of(22L, 46L, 66L));
+        assertFalse(steps.isEmpty());
+        assertTrue(steps.size() <= 2);
+        assertTrue(steps.get(0).toString().startsWith("Start on "));
+    }
+
+    @Test
+    public void testStepsOnKnownNodes() {
+        List<Navigation.Step> steps = Navigation.routeDirections(streets, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L));
+        assertEquals(4, steps.size());
+        assertEquals(step("Start", "Main Street", List.of(1L, 2L, 3L)), steps.get(0).toString());
+        assertEquals(step("Turn left", "Pine Street", List.of(3L, 4L, 5L)), steps.get(1).toString());
+        assertEquals(step("Slight right", "Oak Avenue", List.of(5L, 6L)), steps.get(2).toString());
+        assertEquals(step("Turn right", "Elm Street", List.of(6L, 7L)), steps.get(3).toString());
+    }
+
+    /** Returns the text of a step along the given nodes, whose distance is the sum of their edges. */
+    private static String step(String direction, String way, List<Long> nodes) {
+        return String.format("%s on %s and continue for %.3f miles.",
+                direction, way, GraphFixtures.length(streets, nodes));
+    }
+
+    @Test
+    public void testNoEdges() {
+        assertEquals(List.of(), Navigation.routeDirections(tinyGraph, List.of(22L)));
+        assertEquals(List.of(), Navigation.routeDirections(tinyGraph, List.of()));
+    }
+}
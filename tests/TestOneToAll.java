@@ -0,0 +1,38 @@
+package huskymaps.tests;
+
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.UpwardGraph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestOneToAll {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testMatchesDijkstra() {
+        UpwardGraph upward = tinyGraph.upwardGraph();
+        for (long source : NODES) {
+            double[] distances = tinyGraph.distancesFrom(source);
+            assertEquals(upward.size(), distances.length);
+            // Every node of the hierarchy is checked, not only those the other queries reach
+            Map<Long, Double> expected = GraphFixtures.dijkstra(tinyGraph, source);
+            for (int rank = 0; rank < upward.size(); rank += 1) {
+                long target = upward.id(rank);
+                assertEquals("Distance from " + source + " to " + target + " is incorrect.",
+                        expected.getOrDefault(target, Double.POSITIVE_INFINITY), distances[rank], 1e-9);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package huskymaps.tests;
+
+import astar.AStarSolver;
+import astar.WeightedEdge;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.RoadEdge;
+import huskymaps.StreetMapGraph;
+import huskymaps.server.logic.Router;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestOneway {
+    private StreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testIncomingMatchesOutgoing() {
+        for (long v : tinyGraph.vertices()) {
+            for (WeightedEdge<Long> e : tinyGraph.neighbors(v)) {
+                assertTrue(tinyGraph.incoming(e.to()).stream().anyMatch(f -> f == e));
+            }
+            for (WeightedEdge<Long> e : tinyGraph.incoming(v)) {
+                assertTrue(tinyGraph.neighbors(e.from()).stream().anyMatch(f -> f == e));
+            }
+        }
+    }
+
+    @Test
+    public void testTwoWayRoadsHaveBothDirections() {
+        for (long v : tinyGraph.vertices()) {
+            for (WeightedEdge<Long> e : tinyGraph.neighbors(v)) {
+                if (e instanceof RoadEdge && !((RoadEdge) e).oneway()) {
+                    assertTrue(tinyGraph.neighbors(e.to()).stream()
+                            .anyMatch(f -> f.to().equals(e.from()) && f.weight() == e.weight()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOnewayTags() {
+        String[][] ways = {
+                {"highway", "residential", "oneway", "yes"},
+                {"highway", "residential", "oneway", "-1"},
+                {"highway", "residential", "oneway", "reverse"},
+                {"highway", "residential", "oneway", "no"},
+                {"highway", "motorway"},
+                {"highway", "motorway_link"},
+                {"highway", "residential", "junction", "roundabout"},
+                {"highway", "motorway", "oneway", "no"},
+                {"highway", "residential", "oneway", "reversible"},
+                {"highway", "residential", "oneway", "alternating"},
+        };
+        // Whether each way has an edge forward, from its first node to its second, and backward
+        boolean[][] directions = {
+                {true, false}, {false, true}, {false, true}, {true, true}, {true, false},
+                {true, false}, {true, false}, {true, true}, {false, false}, {false, false},
+        };
+        StreetMapGraph g = separateWays(ways);
+        for (int i = 0; i < ways.length; i += 1) {
+            assertEquals(String.join("=", ways[i]), directions[i][0], hasEdge(g, 2 * i, 2 * i + 1));
+            assertEquals(String.join("=", ways[i]), directions[i][1], hasEdge(g, 2 * i + 1, 2 * i));
+        }
+    }
+
+    @Test
+    public void testAccessPrecedence() {
+        String[][] ways = {
+                {"highway", "residential", "access", "no"},
+                {"highway", "residential", "access", "no", "motorcar", "yes"},
+                {"highway", "residential", "motorcar", "yes", "access", "no"},
+                {"highway", "residential", "access", "yes", "motorcar", "no"},
+                {"highway", "residential", "access", "private"},
+                {"highway", "residential", "vehicle", "no", "motor_vehicle", "destination"},
+                {"highway", "residential", "access", "no", "motorcar", "unknown"},
+        };
+        // The most specific key decides, whatever order the tags are in
+        boolean[] accessible = {false, true, true, false, false, true, false};
+        StreetMapGraph g = separateWays(ways);
+        for (int i = 0; i < ways.length; i += 1) {
+            assertEquals(String.join("=", ways[i]), accessible[i], hasEdge(g, 2 * i, 2 * i + 1));
+            assertEquals(String.join("=", ways[i]), accessible[i], hasEdge(g, 2 * i + 1, 2 * i));
+        }
+    }
+
+    @Test
+    public void testContractedRoutesMatchAStar() {
+        // One-way rows alternate east and west, and one-way columns north and south
+        int n = 8;
+        GraphFixtures.Osm osm = new GraphFixtures.Osm();
+        Random random = new Random(373);
+        for (int r = 0; r < n; r += 1) {
+            for (int c = 0; c < n; c += 1) {
+                osm.node(gridId(n, r, c), 47.6 + 0.005 * r + 0.001 * random.nextDouble(),
+                        -122.3 + 0.007 * c + 0.001 * random.nextDouble());
+            }
+        }
+        for (int r = 0; r < n; r += 1) {
+            List<Long> row = new ArrayList<>();
+            for (int c = 0; c < n; c += 1) {
+                row.add(gridId(n, r, c));
+            }
+            osm.way(r + 1, row, "highway", "residential", "oneway", r % 2 == 0 ? "yes" : "-1");
+        }
+        for (int c = 0; c < n; c += 1) {
+            List<Long> column = new ArrayList<>();
+            for (int r = 0; r < n; r += 1) {
+                column.add(gridId(n, r, c));
+            }
+            String oneway = c % 3 == 0 ? "no" : c % 3 == 1 ? "yes" : "-1";
+            osm.way(n + c + 1, column, "highway", "tertiary", "oneway", oneway);
+        }
+        StreetMapGraph g = osm.graph();
+        ContractedStreetMapGraph contracted = osm.contractedGraph();
+        for (int i = 0; i < n * n; i += 3) {
+            for (int j = 0; j < n * n; j += 5) {
+                long from = gridId(n, i / n, i % n);
+                long to = gridId(n, j / n, j % n);
+                AStarSolver<Long> solver = new AStarSolver<>(g, from, to, 20);
+                List<Long> route = Router.shortestPath(contracted, GraphFixtures.request(contracted, from, to));
+                assertEquals(from + " to " + to, solver.solution(), route);
+            }
+        }
+    }
+
+    /** Returns a graph of separate ways with the given tags, the i-th from node 2i to node 2i + 1. */
+    private static StreetMapGraph separateWays(String[][] ways) {
+        GraphFixtures.Osm osm = new GraphFixtures.Osm();
+        for (int i = 0; i < ways.length; i += 1) {
+            osm.node(2 * i, 47.6 + 0.01 * i, -122.3)
+                    .node(2 * i + 1, 47.6 + 0.01 * i, -122.29)
+                    .way(i + 1, List.of(2L * i, 2L * i + 1), ways[i]);
+        }
+        return osm.graph();
+    }
+
+    /** Returns whether the graph has an edge from one node to another. */
+    private static boolean hasEdge(StreetMapGraph g, long from, long to) {
+        return g.neighbors(from).stream().anyMatch(e -> e.to() == to);
+    }
+
+    private static long gridId(int n, int r, int c) {
+        return 1000 + r * n + c;
+    }
+}
@@ -0,0 +1,55 @@
+package huskymaps.tests;
+
+import astar.WeightedEdge;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.HierarchyQuery;
+import huskymaps.UpwardGraph;
+import huskymaps.WeightedShortcut;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestPathUnpacker {
+    private static final List<Long> NODES = GraphFixtures.TINY_NODES;
+    private ContractedStreetMapGraph tinyGraph;
+
+    @Before
+    public void setUp() {
+        tinyGraph = GraphFixtures.tinyGraph();
+    }
+
+    @Test
+    public void testPathsFollowOriginalEdges() {
+        UpwardGraph upward = tinyGraph.upwardGraph();
+        HierarchyQuery query = new HierarchyQuery(upward);
+        for (long source : NODES) {
+            for (long target : NODES) {
+                double distance = query.run(upward.rank(source), upward.rank(target));
+                List<Long> path = query.path();
+                assertEquals(source, (long) path.get(0));
+                assertEquals(target, (long) path.get(path.size() - 1));
+                double length = 0;
+                for (int i = 1; i < path.size(); i += 1) {
+                    length += edgeWeight(path.get(i - 1), path.get(i));
+                }
+                assertEquals("Path from " + source + " to " + target + " is not a shortest path.",
+                        distance, length, 1e-9);
+            }
+        }
+    }
+
+    /** Returns the weight of the lightest original edge between two nodes. */
+    private double edgeWeight(long from, long to) {
+        double weight = Double.POSITIVE_INFINITY;
+        for (WeightedEdge<Long> e : tinyGraph.neighbors(from)) {
+            if (e.to() == to && !(e instanceof WeightedShortcut)) {
+                weight = Math.min(weight, e.weight());
+            }
+        }
+        return weight;
+    }
+}
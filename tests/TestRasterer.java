@@ -12,9 +12,15 @@ import org.junit.Test;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Map;
 
 import static huskymaps.Constants.BASE_DIR_PATH;
+import static huskymaps.Constants.MAX_RASTER_TILES;
+import static huskymaps.Constants.NUM_X_TILES_AT_DEPTH;
+import static huskymaps.Constants.NUM_Y_TILES_AT_DEPTH;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /** Test of the rastering part of the assignment.*/
 public class TestRasterer {
@@ -46,4 +52,40 @@ public class TestRasterer {
             );
         }
     }
+
+    @Test
+    public void testOutOfRegion() {
+        RasterRequest request = RasterRequest.from(Map.of(
+                "ullat", 40.0, "ullon", -100.0, "lrlat", 39.0, "lrlon", -99.0, "depth", 3
+        ));
+        assertNull(Rasterer.rasterizeMap(request).grid);
+    }
+
+    @Test
+    public void testDegenerateViewport() {
+        RasterRequest request = RasterRequest.from(Map.of(
+                "ullat", 47.6, "ullon", -122.3, "lrlat", 47.7, "lrlon", -122.4, "depth", 3
+        ));
+        assertNull(Rasterer.rasterizeMap(request).grid);
+    }
+
+    @Test
+    public void testClampedToRegion() {
+        RasterRequest request = RasterRequest.from(Map.of(
+                "ullat", 48.0, "ullon", -123.0, "lrlat", 47.0, "lrlon", -121.0, "depth", 1
+        ));
+        Rasterer.Tile[][] grid = Rasterer.rasterizeMap(request).grid;
+        assertEquals(NUM_Y_TILES_AT_DEPTH[1], grid.length);
+        assertEquals(NUM_X_TILES_AT_DEPTH[1], grid[0].length);
+        assertEquals(new Rasterer.Tile(1, 0, 0), grid[0][0]);
+    }
+
+    @Test
+    public void testGridSizeCapped() {
+        RasterRequest request = RasterRequest.from(Map.of(
+                "ullat", 48.0, "ullon", -123.0, "lrlat", 47.0, "lrlon", -121.0, "depth", 7
+        ));
+        Rasterer.Tile[][] grid = Rasterer.rasterizeMap(request).grid;
+        assertTrue(grid.length * grid[0].length <= MAX_RASTER_TILES);
+    }
 }
@@ -0,0 +1,84 @@
+package huskymaps.tests;
+
+import astar.WeightedEdge;
+import huskymaps.RoadClass;
+import huskymaps.RoadEdge;
+import huskymaps.StreetMapGraph;
+import huskymaps.WeightMetric;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestRoadAttributes {
+
+    @Test
+    public void testMaxSpeedTags() {
+        String[] tags = {"25 mph", "50", "100 km/h", "signals", "none", "300 mph", "500", "1000"};
+        int[] speeds = {25, 31, 62, 25, 25, 255, 255, 25};
+        GraphFixtures.Osm osm = new GraphFixtures.Osm();
+        for (int i = 0; i < tags.length; i += 1) {
+            osm.node(2 * i, 47.6, -122.3 + 0.01 * i)
+                    .node(2 * i + 1, 47.601, -122.3 + 0.01 * i)
+                    .way(i, List.of(2L * i, 2L * i + 1), "highway", "residential", "maxspeed", tags[i]);
+        }
+        StreetMapGraph g = osm.graph();
+        for (int i = 0; i < tags.length; i += 1) {
+            WeightedEdge<Long> e = g.neighbors(2L * i).get(0);
+            assertTrue(e instanceof RoadEdge);
+            assertEquals("maxspeed=" + tags[i], speeds[i], ((RoadEdge) e).speed());
+            assertEquals(RoadClass.RESIDENTIAL, ((RoadEdge) e).roadClass());
+        }
+    }
+
+    @Test
+    public void testPack() {
+        for (RoadClass roadClass : RoadClass.values()) {
+            int attributes = RoadEdge.pack(roadClass, 45, true);
+            assertEquals(roadClass, RoadEdge.roadClass(attributes));
+            assertEquals(45, RoadEdge.speed(attributes));
+            assertTrue(RoadEdge.oneway(attributes));
+            // Without a limit, the road is traveled at the default speed for its class
+            attributes = RoadEdge.pack(roadClass, 0);
+            assertEquals(roadClass, RoadEdge.roadClass(attributes));
+            assertEquals(roadClass.defaultSpeed(), RoadEdge.speed(attributes));
+            assertFalse(RoadEdge.oneway(attributes));
+        }
+        assertEquals(255, RoadEdge.speed(RoadEdge.pack(RoadClass.MOTORWAY, 300)));
+        assertEquals(RoadClass.MOTORWAY, RoadEdge.roadClass(RoadEdge.pack(RoadClass.MOTORWAY, 300)));
+        assertEquals(RoadClass.PRIMARY.defaultSpeed(), RoadEdge.speed(RoadEdge.pack(RoadClass.PRIMARY, -5)));
+    }
+
+    @Test
+    public void testTravelTimeWeights() {
+        WeightMetric metric = WeightMetric.TRAVEL_TIME;
+        // A mile at 30 mph takes two minutes, and at the default 25 mph of a residential road 2.4
+        assertEquals(2, metric.weight(1, RoadEdge.pack(RoadClass.RESIDENTIAL, 30)), 1e-9);
+        assertEquals(2.4, metric.weight(1, RoadEdge.pack(RoadClass.RESIDENTIAL, 0)), 1e-9);
+        assertEquals(1, metric.lowerBound(1, 60), 1e-9);
+        assertEquals(0, metric.lowerBound(1, 0), 1e-9);
+        assertEquals(0.5, metric.turnPenalty(30), 1e-9);
+        // The bound from the fastest speed never exceeds the weight of a road no faster
+        for (RoadClass roadClass : RoadClass.values()) {
+            for (int speed : new int[]{0, 10, 35, 70, 255}) {
+                int attributes = RoadEdge.pack(roadClass, speed);
+                for (int maxSpeed : new int[]{RoadEdge.speed(attributes), 255}) {
+                    assertTrue(metric.lowerBound(0.7, maxSpeed) <= metric.weight(0.7, attributes) + 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDistanceWeights() {
+        WeightMetric metric = WeightMetric.DISTANCE;
+        int attributes = RoadEdge.pack(RoadClass.MOTORWAY, 70);
+        assertEquals(0.7, metric.weight(0.7, attributes), 1e-9);
+        assertEquals(0.7, metric.lowerBound(0.7, 70), 1e-9);
+        assertEquals(0, metric.turnPenalty(30), 1e-9);
+    }
+}
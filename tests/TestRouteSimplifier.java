@@ -0,0 +1,143 @@
+package huskymaps.tests;
+
+import huskymaps.StreetMapGraph;
+import huskymaps.params.Location;
+import huskymaps.server.logic.RouteSimplifier;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static huskymaps.Constants.LAT_PER_TILE;
+import static huskymaps.Constants.LON_PER_TILE;
+import static huskymaps.Constants.MAX_DEPTH;
+import static huskymaps.Constants.NUM_X_TILES_AT_DEPTH;
+import static huskymaps.Constants.ROUTE_SIMPLIFICATION_TOLERANCE_PX;
+import static huskymaps.Constants.TILE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRouteSimplifier {
+    private static final int NUM_NODES = 400;
+
+    private static StreetMapGraph graph;
+    private static List<Long> route;
+    private static List<List<Long>> levels;
+
+    /**
+     * Lays a winding street of NUM_NODES nodes a few pixels apart at the deepest depth, so that
+     * every depth drops a different number of them.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        GraphFixtures.Osm osm = new GraphFixtures.Osm();
+        Random random = new Random(373);
+        route = new ArrayList<>();
+        double lat = 47.6;
+        double lon = -122.3;
+        double heading = 0;
+        for (long id = 1; id <= NUM_NODES; id += 1) {
+            osm.node(id, lat, lon);
+            route.add(id);
+            heading += random.nextGaussian() * 0.5;
+            lat += 0.00005 * Math.sin(heading);
+            lon += 0.00005 * Math.cos(heading);
+        }
+        osm.way(1, route, "highway", "residential");
+        graph = osm.graph();
+        levels = RouteSimplifier.simplify(graph, route);
+    }
+
+    @Test
+    public void testOneLevelPerDepth() {
+        assertEquals(NUM_X_TILES_AT_DEPTH.length, levels.size());
+        assertTrue("The coarsest depth should drop nodes.", levels.get(0).size() < NUM_NODES);
+        assertTrue("The deepest depth should keep more nodes than the coarsest.",
+                levels.get(MAX_DEPTH).size() > levels.get(0).size());
+    }
+
+    @Test
+    public void testEndpointsKept() {
+        for (List<Long> level : levels) {
+            assertEquals(route.get(0), level.get(0));
+            assertEquals(route.get(route.size() - 1), level.get(level.size() - 1));
+        }
+    }
+
+    @Test
+    public void testCoarserDepthsAreSubsets() {
+        assertTrue(isSubsequence(levels.get(MAX_DEPTH), route));
+        for (int depth = 0; depth < MAX_DEPTH; depth += 1) {
+            assertTrue("Depth " + depth + " keeps a node depth " + (depth + 1) + " drops.",
+                    isSubsequence(levels.get(depth), levels.get(depth + 1)));
+        }
+    }
+
+    /**
+     * Each depth is simplified from the next finer one, so a dropped node is within the tolerance
+     * of the line at the depth it was dropped, and within twice the tolerance of every coarser one.
+     */
+    @Test
+    public void testDroppedNodesWithinTolerance() {
+        for (int depth = 0; depth <= MAX_DEPTH; depth += 1) {
+            List<Long> finer = depth == MAX_DEPTH ? route : levels.get(depth + 1);
+            assertWithin(levels.get(depth), finer, depth, ROUTE_SIMPLIFICATION_TOLERANCE_PX);
+            assertWithin(levels.get(depth), route, depth, 2 * ROUTE_SIMPLIFICATION_TOLERANCE_PX);
+        }
+    }
+
+    @Test
+    public void testShortRoutesUnchanged() {
+        for (List<Long> level : RouteSimplifier.simplify(graph, route.subList(0, 2))) {
+            assertEquals(route.subList(0, 2), level);
+        }
+        for (List<Long> level : RouteSimplifier.simplify(graph, List.of())) {
+            assertEquals(List.of(), level);
+        }
+    }
+
+    /** Asserts that every node of the finer route is within the tolerance of the simplified one. */
+    private static void assertWithin(List<Long> simplified, List<Long> finer, int depth, double tolerance) {
+        int next = 0;
+        for (int i = 0; i + 1 < simplified.size(); i += 1) {
+            Location a = graph.location(simplified.get(i));
+            Location b = graph.location(simplified.get(i + 1));
+            while (!finer.get(next).equals(simplified.get(i + 1))) {
+                double distance = pixelDistance(graph.location(finer.get(next)), a, b, depth);
+                assertTrue(String.format("Node %d is %.2f pixels from the line at depth %d.",
+                        finer.get(next), distance, depth), distance <= tolerance);
+                next += 1;
+            }
+        }
+    }
+
+    /** Returns the distance in pixels at the given depth from p to the segment from a to b. */
+    private static double pixelDistance(Location p, Location a, Location b, int depth) {
+        double lonPerPixel = LON_PER_TILE[depth] / TILE_SIZE;
+        double latPerPixel = LAT_PER_TILE[depth] / TILE_SIZE;
+        double px = p.lon() / lonPerPixel;
+        double py = p.lat() / latPerPixel;
+        double ax = a.lon() / lonPerPixel;
+        double ay = a.lat() / latPerPixel;
+        double dx = b.lon() / lonPerPixel - ax;
+        double dy = b.lat() / latPerPixel - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0
+                : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        return Math.hypot(ax + t * dx - px, ay + t * dy - py);
+    }
+
+    /** Returns true if and only if every element of sub appears in list in the same order. */
+    private static boolean isSubsequence(List<Long> sub, List<Long> list) {
+        int i = 0;
+        for (long id : list) {
+            if (i < sub.size() && sub.get(i) == id) {
+                i += 1;
+            }
+        }
+        return i == sub.size();
+    }
+}
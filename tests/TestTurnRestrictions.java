@@ -0,0 +1,208 @@
+package huskymaps.tests;
+
+import astar.AStarSolver;
+import huskymaps.ContractedStreetMapGraph;
+import huskymaps.StreetMapGraph;
+import huskymaps.TurnAwareShortestPaths;
+import huskymaps.TurnRestrictions;
+import huskymaps.params.Location;
+import huskymaps.params.RouteStats;
+import huskymaps.server.logic.Router;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static huskymaps.Constants.TURN_REPAIR_MAX_STRETCH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTurnRestrictions {
+    /** The number of nodes on each of the roads leading to the crossroads from the west and north. */
+    private static final int APPROACH = 12;
+    private static StreetMapGraph roads;
+    private static ContractedStreetMapGraph crossroads;
+    private TurnRestrictions restrictions;
+
+    @BeforeClass
+    public static void setUpClass() {
+        GraphFixtures.Osm osm = crossroads(0.025);
+        roads = osm.graph();
+        crossroads = osm.contractedGraph();
+    }
+
+    /**
+     * Returns a crossroads at node 5 inside a ring of roads through nodes 1 to 9, numbered row
+     * by row from the northwest. Long roads lead in from the west to node 4 and from the north
+     * to node 2, so that routes between them are much longer than the turns they take.
+     * @param corner How far node 5 lies from the northwest corner towards the southeast, as a
+     *               fraction of the ring. Below one half, cutting through it is shorter than
+     *               going around, and the nearer the corner, the less shorter.
+     */
+    private static GraphFixtures.Osm crossroads(double corner) {
+        GraphFixtures.Osm osm = new GraphFixtures.Osm();
+        for (int r = 0; r < 3; r += 1) {
+            for (int c = 0; c < 3; c += 1) {
+                if (r == 1 && c == 1) {
+                    osm.node(5, 47.6 - 0.002 * corner, -122.3 + 0.003 * corner);
+                } else {
+                    osm.node(1 + 3 * r + c, 47.6 - 0.001 * r, -122.3 + 0.0015 * c);
+                }
+            }
+        }
+        List<Long> west = new ArrayList<>();
+        List<Long> north = new ArrayList<>(List.of(2L));
+        for (int i = APPROACH; i >= 1; i -= 1) {
+            osm.node(100 + i, 47.599, -122.3 - 0.0015 * i);
+            west.add(100L + i);
+        }
+        for (int i = 1; i <= APPROACH; i += 1) {
+            osm.node(200 + i, 47.6 + 0.001 * i, -122.2985);
+            north.add(200L + i);
+        }
+        west.add(4L);
+        osm.way(11, List.of(4L, 5L), "highway", "residential")
+                .way(12, List.of(5L, 6L), "highway", "residential")
+                .way(13, List.of(2L, 5L), "highway", "residential")
+                .way(14, List.of(5L, 8L), "highway", "residential")
+                .way(21, List.of(1L, 2L, 3L), "highway", "residential")
+                .way(22, List.of(3L, 6L, 9L), "highway", "residential")
+                .way(23, List.of(9L, 8L, 7L), "highway", "residential")
+                .way(24, List.of(7L, 4L, 1L), "highway", "residential")
+                .way(41, west, "highway", "residential")
+                .way(42, north, "highway", "residential")
+                .restriction(31, 11, 5, 13, "restriction", "no_left_turn")
+                .restriction(32, 12, 5, 14, "restriction", "only_left_turn")
+                // The tag for cars wins over the general one, whichever comes first
+                .restriction(33, 13, 5, 12, "restriction:motorcar", "no_left_turn",
+                        "restriction", "only_straight_on")
+                .restriction(34, 14, 5, 11, "restriction", "no_left_turn", "except", "bicycle;motorcar")
+                .restriction(35, 14, 5, 12, "restriction", "no_right_turn", "except", "bicycle");
+        return osm;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // Node 5 is a crossroads between 1 and 9 one way, and 3 and 7 the other
+        restrictions = new TurnRestrictions();
+        restrictions.add(1, 5, 3, false);
+        restrictions.add(7, 5, 9, true);
+    }
+
+    @Test
+    public void testProhibitedTurn() {
+        assertFalse(restrictions.allows(1, 5, 3));
+        assertTrue(restrictions.allows(1, 5, 9));
+        assertTrue(restrictions.allows(3, 5, 1));
+    }
+
+    @Test
+    public void testMandatoryTurn() {
+        assertTrue(restrictions.allows(7, 5, 9));
+        assertFalse(restrictions.allows(7, 5, 3));
+        assertFalse(restrictions.allows(7, 5, 1));
+        assertTrue(restrictions.allows(3, 5, 7));
+    }
+
+    @Test
+    public void testPath() {
+        assertTrue(restrictions.allows(List.of(2L, 1L, 5L, 9L)));
+        assertFalse(restrictions.allows(List.of(2L, 1L, 5L, 3L, 4L)));
+        assertEquals(2, restrictions.size());
+    }
+
+    @Test
+    public void testRelations() {
+        TurnRestrictions parsed = crossroads.turnRestrictions();
+        // Each relation turns from the neighbor of node 5 along its from way
+        assertFalse(parsed.allows(4, 5, 2));
+        assertTrue(parsed.allows(4, 5, 6));
+        assertTrue(parsed.allows(6, 5, 8));
+        assertFalse(parsed.allows(6, 5, 4));
+        assertFalse(parsed.allows(6, 5, 2));
+        assertFalse(parsed.allows(2, 5, 6));
+        assertTrue(parsed.allows(2, 5, 4));
+        assertTrue(parsed.allows(2, 5, 8));
+        assertTrue(parsed.allows(8, 5, 4));
+        assertFalse(parsed.allows(8, 5, 6));
+        assertEquals(4, parsed.size());
+    }
+
+    @Test
+    public void testTurnAwareShortestPaths() {
+        assertEquals(List.of(4L, 5L, 2L), new AStarSolver<>(roads, 4L, 2L, 20).solution());
+        assertEquals(List.of(4L, 1L, 2L), new TurnAwareShortestPaths(crossroads, 4, 2, 20).solution());
+        assertEquals(List.of(6L, 3L, 2L, 5L, 4L), new TurnAwareShortestPaths(crossroads, 6, 4, 20).solution());
+    }
+
+    @Test
+    public void testRouterRepairsRestrictedTurns() {
+        List<Long> expected = new ArrayList<>();
+        for (long i = 100 + APPROACH; i > 100; i -= 1) {
+            expected.add(i);
+        }
+        expected.addAll(List.of(4L, 1L, 2L));
+        for (long i = 201; i <= 200 + APPROACH; i += 1) {
+            expected.add(i);
+        }
+        long from = 100 + APPROACH;
+        long to = 200 + APPROACH;
+        RouteStats stats = new RouteStats();
+        List<Long> route = Router.shortestPath(crossroads, GraphFixtures.request(crossroads, from, to), stats);
+        assertEquals(expected, route);
+        assertEquals("contraction+repair", stats.solver);
+        assertEquals(new TurnAwareShortestPaths(crossroads, from, to, 20).solution(), route);
+        // The uncontracted router searches the whole graph for the same route
+        assertEquals(expected, Router.shortestPath(roads, GraphFixtures.request(roads, from, to)));
+
+        route = Router.shortestPath(crossroads, GraphFixtures.request(crossroads, 6, 4));
+        assertEquals(List.of(6L, 3L, 2L, 5L, 4L), route);
+        assertTrue(crossroads.turnRestrictions().allows(route));
+    }
+
+    @Test
+    public void testRouterSearchesWholeGraphWhenRepairIsLong() {
+        long from = 100 + APPROACH;
+        long to = 200 + APPROACH;
+        // Going around the ring is a long way further than cutting through node 5
+        GraphFixtures.Osm osm = crossroads(0.3);
+        StreetMapGraph plain = osm.graph();
+        double unrestricted = GraphFixtures.length(plain, new AStarSolver<>(plain, from, to, 20).solution());
+        double repaired = GraphFixtures.length(plain, new TurnAwareShortestPaths(plain, from, to, 20).solution());
+        assertTrue(repaired > (1 + TURN_REPAIR_MAX_STRETCH) * unrestricted);
+
+        // A road from the start to the end, bent to a length between the two, leaves the route far
+        // from the restricted turn, so no local repair finds it
+        Location a = plain.location(from);
+        Location b = plain.location(to);
+        double length = (unrestricted + repaired) / 2;
+        double lo = 0;
+        double hi = 0.1;
+        for (int i = 0; i < 60; i += 1) {
+            double bend = (lo + hi) / 2;
+            Location x = bend(a, b, bend);
+            if (a.greatCircleDistance(x) + x.greatCircleDistance(b) < length) {
+                lo = bend;
+            } else {
+                hi = bend;
+            }
+        }
+        Location x = bend(a, b, lo);
+        osm.node(300, x.lat(), x.lon()).way(43, List.of(from, 300L, to), "highway", "residential");
+        ContractedStreetMapGraph bypassed = osm.contractedGraph();
+
+        RouteStats stats = new RouteStats();
+        List<Long> route = Router.shortestPath(bypassed, GraphFixtures.request(bypassed, from, to), stats);
+        assertEquals(List.of(from, 300L, to), route);
+        assertEquals("contraction+turns", stats.solver);
+    }
+
+    /** Returns the point the given distance northwest of the midpoint between two others. */
+    private static Location bend(Location a, Location b, double distance) {
+        return new Location((a.lat() + b.lat()) / 2 + distance, (a.lon() + b.lon()) / 2 - distance);
+    }
+}